@@ -0,0 +1,142 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A ready-made {@link SparkAdapter} backed by primitive float arrays. All points are drawn with
+ * {@link SparkPathType.Legacy#INSTANCE}.
+ *
+ * The arrays are not copied - if you modify them, call {@link #notifyDataSetChanged()} afterwards.
+ */
+public class FloatArraySparkAdapter extends SparkAdapter {
+    private static final Set<SparkPathType> SUPPORTED_PATH_TYPES =
+            Collections.<SparkPathType>singleton(SparkPathType.Legacy.INSTANCE);
+
+    private @Nullable float[] xData;
+    private @NonNull float[] yData;
+
+    public FloatArraySparkAdapter() {
+        this(null, new float[0]);
+    }
+
+    public FloatArraySparkAdapter(@NonNull float[] yData) {
+        this(null, yData);
+    }
+
+    /**
+     * @param xData the X values, or null to distribute the points evenly along the x axis
+     * @param yData the Y values
+     */
+    public FloatArraySparkAdapter(@Nullable float[] xData, @NonNull float[] yData) {
+        checkLengths(xData, yData);
+        this.xData = xData;
+        this.yData = yData;
+    }
+
+    /**
+     * Replaces the backing Y values and distributes the points evenly along the x axis.
+     */
+    public void setData(@NonNull float[] yData) {
+        setData(null, yData);
+    }
+
+    /**
+     * Replaces the backing X and Y values. Does not notify observers. Safe to call while a
+     * {@link SparkView} builds its paths from this adapter in the background.
+     */
+    public synchronized void setData(@Nullable float[] xData, @NonNull float[] yData) {
+        checkLengths(xData, yData);
+        this.xData = xData;
+        this.yData = yData;
+        markDataChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return yData.length;
+    }
+
+    @NonNull
+    @Override
+    public Object getItem(int index) {
+        return yData[index];
+    }
+
+    @Override
+    public float getX(int index) {
+        return xData == null ? index : xData[index];
+    }
+
+    @Override
+    public float getY(int index) {
+        return yData[index];
+    }
+
+    @Override
+    public void copyX(@NonNull float[] dst, int from, int count) {
+        if (xData == null) {
+            for (int i = 0; i < count; i++) {
+                dst[i] = from + i;
+            }
+        } else {
+            System.arraycopy(xData, from, dst, 0, count);
+        }
+    }
+
+    @Override
+    public void copyY(@NonNull float[] dst, int from, int count) {
+        System.arraycopy(yData, from, dst, 0, count);
+    }
+
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        final float[] yData = this.yData;
+        final int count = yData.length;
+        final boolean hasBaseLine = hasBaseLine();
+
+        float minY = hasBaseLine ? getBaseLine() : Float.MAX_VALUE;
+        float maxY = hasBaseLine ? minY : -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            minY = Math.min(minY, yData[i]);
+            maxY = Math.max(maxY, yData[i]);
+        }
+
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        if (xData == null) {
+            if (count > 0) {
+                minX = 0;
+                maxX = count - 1;
+            }
+        } else {
+            final float[] xData = this.xData;
+            for (int i = 0; i < count; i++) {
+                minX = Math.min(minX, xData[i]);
+                maxX = Math.max(maxX, xData[i]);
+            }
+        }
+
+        return obtainDataBounds(minX, minY, maxX, maxY);
+    }
+
+    @Override
+    protected SparkPathType getPathType(int index) {
+        return SparkPathType.Legacy.INSTANCE;
+    }
+
+    @Override
+    protected Set<SparkPathType> getSupportedPathTypes() {
+        return SUPPORTED_PATH_TYPES;
+    }
+
+    private static void checkLengths(@Nullable float[] xData, @NonNull float[] yData) {
+        if (xData != null && xData.length != yData.length) {
+            throw new IllegalArgumentException("xData and yData must have the same length");
+        }
+    }
+}
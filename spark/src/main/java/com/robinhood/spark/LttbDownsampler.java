@@ -0,0 +1,96 @@
+package com.robinhood.spark;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Downsamples a graph to a fixed budget of points using Largest-Triangle-Three-Buckets: the points
+ * are split into equally sized buckets, and each bucket keeps the point forming the largest
+ * triangle with the point kept for the previous bucket and the average of the next one. This
+ * keeps the visual shape of the line at far fewer points than pixel-based decimation, which
+ * makes it a good fit for small sparklines of long histories.
+ */
+public class LttbDownsampler implements SparkDownsampler {
+    private final int targetCount;
+
+    /**
+     * @param targetCount the number of points to draw across the whole graph. Must be at least 3.
+     */
+    public LttbDownsampler(int targetCount) {
+        if (targetCount < 3) {
+            throw new IllegalArgumentException("targetCount must be at least 3: " + targetCount);
+        }
+        this.targetCount = targetCount;
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    @Override
+    public boolean shouldDownsample(int count, float width) {
+        return count > targetCount;
+    }
+
+    @Override
+    public int downsample(@NonNull float[] x, @NonNull float[] y, int from, int to, float width,
+            @NonNull int[] out) {
+        final int count = to - from;
+
+        // each run of points gets its share of the budget by how much of the graph it spans
+        int runTarget = targetCount;
+        if (width > 0 && count > 0) {
+            final float share = (x[to - 1] - x[from]) / width;
+            runTarget = Math.max(3, Math.round(targetCount * Math.min(1, share)));
+        }
+
+        if (runTarget >= count) {
+            for (int i = 0; i < count; i++) {
+                out[i] = from + i;
+            }
+            return count;
+        }
+
+        // the first and last points are always kept; the rest are split into buckets
+        final double bucketSize = (double) (count - 2) / (runTarget - 2);
+        int outCount = 0;
+        int kept = from;
+        out[outCount++] = kept;
+
+        for (int bucket = 0; bucket < runTarget - 2; bucket++) {
+            // the average of the next bucket is the third corner of the triangle
+            final int nextStart = from + (int) ((bucket + 1) * bucketSize) + 1;
+            final int nextEnd = Math.min(from + (int) ((bucket + 2) * bucketSize) + 1, to);
+            float averageX = 0;
+            float averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            final int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            // keep the point of this bucket forming the largest triangle
+            final int start = from + (int) (bucket * bucketSize) + 1;
+            final int end = from + (int) ((bucket + 1) * bucketSize) + 1;
+            final float keptX = x[kept];
+            final float keptY = y[kept];
+            float maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                final float area = Math.abs((keptX - averageX) * (y[i] - keptY)
+                        - (keptX - x[i]) * (averageY - keptY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            kept = maxIndex;
+            out[outCount++] = kept;
+        }
+
+        out[outCount++] = to - 1;
+        return outCount;
+    }
+}
@@ -0,0 +1,61 @@
+package com.robinhood.spark;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Reduces each pixel column of the graph to at most four points: the first, the lowest, the
+ * highest and the last point falling in it (also known as M4 aggregation). Lines drawn through
+ * the remaining points cover exactly the same pixels as lines drawn through all of them.
+ */
+public class PixelColumnDownsampler implements SparkDownsampler {
+
+    /**
+     * Graphs are only downsampled if there are more points than this per pixel of content width,
+     * as each pixel column keeps up to four points anyway.
+     */
+    private static final int POINTS_PER_PIXEL = 4;
+
+    @Override
+    public boolean shouldDownsample(int count, float width) {
+        return count > POINTS_PER_PIXEL * width;
+    }
+
+    @Override
+    public int downsample(@NonNull float[] x, @NonNull float[] y, int from, int to, float width,
+            @NonNull int[] out) {
+        int outCount = 0;
+        int i = from;
+        while (i < to) {
+            final int column = column(x[i]);
+            final int first = i;
+            int minIndex = i;
+            int maxIndex = i;
+            i++;
+            while (i < to && column(x[i]) == column) {
+                if (y[i] < y[minIndex]) minIndex = i;
+                if (y[i] > y[maxIndex]) maxIndex = i;
+                i++;
+            }
+            final int last = i - 1;
+
+            // first <= min, max <= last, so this is already in index order
+            out[outCount++] = first;
+            outCount = addIfNew(out, outCount, Math.min(minIndex, maxIndex));
+            outCount = addIfNew(out, outCount, Math.max(minIndex, maxIndex));
+            outCount = addIfNew(out, outCount, last);
+        }
+
+        return outCount;
+    }
+
+    private static int column(float x) {
+        return (int) Math.floor(x);
+    }
+
+    private static int addIfNew(int[] out, int outCount, int index) {
+        if (out[outCount - 1] != index) {
+            out[outCount++] = index;
+        }
+        return outCount;
+    }
+}
@@ -0,0 +1,498 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Wraps another {@link SparkAdapter} and keeps a min/max pyramid over its Y values: level 1 holds
+ * the lowest and highest point of every 2 points, level 2 of every 4 points, and so on. A
+ * {@link SparkView} showing a pyramid adapter draws from the level matching its points per pixel,
+ * so populating a graph of a long history costs time proportional to the view's width rather than
+ * to the number of points.
+ *
+ * The pyramid follows the notifications of the wrapped adapter: appended points extend it
+ * incrementally, and other changes rebuild it from the first changed point onwards. Notify the
+ * wrapped adapter, not this one. The pyramid only observes the wrapped adapter while the pyramid
+ * has observers of its own, such as a {@link SparkView} showing it, so a pyramid nobody shows
+ * anymore isn't kept alive by the wrapped adapter; it is rebuilt when it is observed again.
+ *
+ * The wrapped adapter's X values must be ascending. {@link #getDataBounds()} and
+ * {@link #getDataBounds(int, int)} are taken from the pyramid rather than from the wrapped adapter;
+ * override them here to customize the bounds.
+ */
+public class PyramidSparkAdapter extends SparkAdapter {
+
+    /**
+     * The number of points per pixel the pyramid level is chosen for. Each bucket contributes at
+     * most two points, so this is two buckets per pixel.
+     */
+    private static final int POINTS_PER_PIXEL = 4;
+
+    private final SparkAdapter source;
+
+    // levels.get(k - 1) holds the buckets of 2^k points
+    private final List<Level> levels = new ArrayList<>();
+
+    // indices of event points, and of the points whose path type differs from the previous one
+    private int[] eventIndices = new int[16];
+    private int eventCount;
+    private int[] pathTypeChanges = new int[16];
+    private int pathTypeChangeCount;
+
+    // whether the pyramid may have missed changes to the source while it wasn't observing it,
+    // which includes the time between building it and it first being observed
+    private boolean stale = true;
+
+    // number of source points the pyramid covers, and the number of levels they need
+    private int builtCount;
+    private int levelCount;
+    private final float[] chunk = new float[256];
+
+    // scratch buffers used while merging the points to draw
+    private int[] extremesBuffer = new int[0];
+    private int[] otherBuffer = new int[0];
+    private int[] mergeBuffer = new int[0];
+
+    public PyramidSparkAdapter(@NonNull SparkAdapter source) {
+        this.source = source;
+        extend();
+    }
+
+    /**
+     * @return the adapter this pyramid was built over
+     */
+    @NonNull
+    public SparkAdapter getSource() {
+        return source;
+    }
+
+    /**
+     * @return the number of levels above the raw points
+     */
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * Returns the level to draw the points in [from, to) at, across {@code width} pixels. Level 0
+     * is the raw points.
+     */
+    int getLevel(int from, int to, float width) {
+        final float bucketSize = (to - from) * 2f / (POINTS_PER_PIXEL * Math.max(width, 1));
+        int level = 0;
+        while (level < levelCount && (2 << level) <= bucketSize) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns an upper bound on the number of indices {@link #getPoints(int, int, int, int[])}
+     * writes for the same arguments.
+     */
+    int getMaxPointCount(int level, int from, int to) {
+        final int buckets = ((to - 1) >> level) - (from >> level) + 1;
+        return 2 * buckets + 2 + eventCount + 2 * pathTypeChangeCount;
+    }
+
+    /**
+     * Writes the indices of the points to draw in [from, to) at the given level into {@code out},
+     * in ascending order: the lowest and highest point of each bucket, the first and last point,
+     * every event and both sides of every path type change.
+     * @return the number of indices written
+     */
+    int getPoints(int level, int from, int to, @NonNull int[] out) {
+        final int capacity = getMaxPointCount(level, from, to);
+        if (extremesBuffer.length < capacity) {
+            extremesBuffer = new int[capacity];
+            otherBuffer = new int[capacity];
+            mergeBuffer = new int[capacity];
+        }
+
+        // bucket extremes, along with the ends of the range
+        int count = 0;
+        final int[] extremes = extremesBuffer;
+        extremes[count++] = from;
+        if (level == 0) {
+            for (int i = from + 1; i < to; i++) {
+                extremes[count++] = i;
+            }
+        } else {
+            final Level buckets = levels.get(level - 1);
+            for (int b = from >> level, last = (to - 1) >> level; b <= last; b++) {
+                final int first = Math.min(buckets.minIndex[b], buckets.maxIndex[b]);
+                final int second = Math.max(buckets.minIndex[b], buckets.maxIndex[b]);
+                if (first > extremes[count - 1] && first < to - 1) extremes[count++] = first;
+                if (second > extremes[count - 1] && second < to - 1) extremes[count++] = second;
+            }
+            if (to - 1 > from) extremes[count++] = to - 1;
+        }
+
+        // events and path type changes are always drawn exactly
+        final int[] other = otherBuffer;
+        final int eventsFrom = lowerBound(eventIndices, eventCount, from);
+        final int events = lowerBound(eventIndices, eventCount, to) - eventsFrom;
+        System.arraycopy(eventIndices, eventsFrom, other, 0, events);
+        count = SparkView.mergeSortedIndices(extremes, count, other, events, mergeBuffer);
+
+        int changes = 0;
+        for (int c = lowerBound(pathTypeChanges, pathTypeChangeCount, from + 1);
+                c < pathTypeChangeCount && pathTypeChanges[c] < to; c++) {
+            other[changes++] = pathTypeChanges[c] - 1;
+            other[changes++] = pathTypeChanges[c];
+        }
+        return SparkView.mergeSortedIndices(mergeBuffer, count, other, changes, out);
+    }
+
+    /**
+     * Copies the points in [from, to) that {@link #getPoints(int, int, int, int[])} picks at the
+     * given level, so a graph can be built from them in the background. Call it while holding the
+     * monitor of {@link #getLock()}.
+     */
+    @NonNull
+    SparkSnapshot snapshot(int level, int from, int to) {
+        final int[] indices = new int[getMaxPointCount(level, from, to)];
+        final int count = getPoints(level, from, to, indices);
+        return SparkSnapshot.of(this, indices, count);
+    }
+
+    /**
+     * Brings the pyramid up to date with the points the source gained since it was last built.
+     */
+    void extend() {
+        final int count = source.getCount();
+        if (count < builtCount) {
+            // rebuild the last bucket of every level from the points that remain
+            truncate(Math.max(count - 1, 0));
+        }
+        final int from = builtCount;
+        if (count == from) return;
+
+        // events and path type changes of the new points
+        SparkPathType previousPathType = from > 0 ? source.getPathType(from - 1) : null;
+        for (int i = from; i < count; i++) {
+            if (source.isEvent(i)) {
+                eventIndices = append(eventIndices, eventCount++, i);
+            }
+            final SparkPathType pathType = source.getPathType(i);
+            if (previousPathType != null && !pathType.equals(previousPathType)) {
+                pathTypeChanges = append(pathTypeChanges, pathTypeChangeCount++, i);
+            }
+            previousPathType = pathType;
+        }
+
+        builtCount = count;
+        levelCount = levelsFor(count);
+        while (levels.size() < levelCount) {
+            levels.add(new Level());
+        }
+        if (levelCount == 0) return;
+
+        // level 1 is built from the raw points, in chunks of whole buckets
+        final Level first = levels.get(0);
+        first.ensureSize((count + 1) >> 1);
+        for (int start = (from >> 1) << 1; start < count; start += chunk.length) {
+            final int chunkCount = Math.min(chunk.length, count - start);
+            source.copyY(chunk, start, chunkCount);
+            for (int j = 0; j < chunkCount; j += 2) {
+                final int b = (start + j) >> 1;
+                if (j + 1 == chunkCount) {
+                    first.set(b, start + j, chunk[j], start + j, chunk[j]);
+                } else if (chunk[j + 1] < chunk[j]) {
+                    first.set(b, start + j + 1, chunk[j + 1], start + j, chunk[j]);
+                } else {
+                    first.set(b, start + j, chunk[j], start + j + 1, chunk[j + 1]);
+                }
+            }
+        }
+
+        // every other level combines pairs of buckets from the level below
+        for (int level = 2; level <= levelCount; level++) {
+            final Level below = levels.get(level - 2);
+            final Level current = levels.get(level - 1);
+            final int belowSize = bucketsFor(count, level - 1);
+            current.ensureSize(bucketsFor(count, level));
+            for (int b = from >> level, last = (count - 1) >> level; b <= last; b++) {
+                current.combine(b, below, 2 * b, 2 * b + 1 < belowSize ? 2 * b + 1 : 2 * b);
+            }
+        }
+    }
+
+    /**
+     * Forgets everything the pyramid knows about the points from {@code count} onwards.
+     */
+    private void truncate(int count) {
+        builtCount = Math.min(builtCount, count);
+        levelCount = levelsFor(builtCount);
+        eventCount = lowerBound(eventIndices, eventCount, builtCount);
+        pathTypeChangeCount = lowerBound(pathTypeChanges, pathTypeChangeCount, builtCount);
+    }
+
+    /**
+     * @return the number of levels needed for the top one to be a single bucket
+     */
+    private static int levelsFor(int count) {
+        int levels = 0;
+        while ((1L << levels) < count) {
+            levels++;
+        }
+        return levels;
+    }
+
+    private static int bucketsFor(int count, int level) {
+        return (int) ((count + (1L << level) - 1) >> level);
+    }
+
+    @Override
+    protected void onFirstObserverRegistered() {
+        source.registerDataSetObserver(sourceObserver);
+        if (stale) {
+            stale = false;
+            synchronized (getLock()) {
+                truncate(0);
+                extend();
+            }
+        }
+    }
+
+    @Override
+    protected void onLastObserverUnregistered() {
+        source.unregisterDataSetObserver(sourceObserver);
+        stale = true;
+    }
+
+    /**
+     * @return the source's lock, which the pyramid is also updated under
+     */
+    @NonNull
+    @Override
+    protected Object getLock() {
+        return source.getLock();
+    }
+
+    /**
+     * @return the number of source points the pyramid covers, which lags behind the source's
+     * count until the source notifies its changes
+     */
+    @Override
+    public int getCount() {
+        synchronized (getLock()) {
+            return builtCount;
+        }
+    }
+
+    @NonNull
+    @Override
+    public Object getItem(int index) {
+        return source.getItem(index);
+    }
+
+    @Override
+    public float getX(int index) {
+        return source.getX(index);
+    }
+
+    @Override
+    public float getY(int index) {
+        return source.getY(index);
+    }
+
+    @Override
+    public void copyX(@NonNull float[] dst, int from, int count) {
+        source.copyX(dst, from, count);
+    }
+
+    @Override
+    public void copyY(@NonNull float[] dst, int from, int count) {
+        source.copyY(dst, from, count);
+    }
+
+    @Override
+    protected SparkPathType getPathType(int index) {
+        return source.getPathType(index);
+    }
+
+    @Override
+    protected Set<SparkPathType> getSupportedPathTypes() {
+        return source.getSupportedPathTypes();
+    }
+
+    @NonNull
+    @Override
+    protected SparkPaintProvider getPaintProvider() {
+        return source.getPaintProvider();
+    }
+
+    @Override
+    protected boolean isEvent(int index) {
+        return source.isEvent(index);
+    }
+
+    @Override
+    protected boolean shouldSnapToEvent(int index) {
+        return source.shouldSnapToEvent(index);
+    }
+
+    @Override
+    public boolean hasBaseLine() {
+        return source.hasBaseLine();
+    }
+
+    @Override
+    public float getBaseLine() {
+        return source.getBaseLine();
+    }
+
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        return getDataBounds(0, builtCount);
+    }
+
+    /**
+     * Reads the Y bounds of [from, to) off the pyramid, from the largest buckets that fit in it, in
+     * O(log n).
+     */
+    @NonNull
+    @Override
+    public RectF getDataBounds(int from, int to) {
+        to = Math.min(to, builtCount);
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        if (from < to) {
+            minX = source.getX(from);
+            maxX = source.getX(to - 1);
+        }
+
+        int i = from;
+        while (i < to) {
+            // the largest bucket starting at i that ends within the range
+            int level = 0;
+            while (level < levelCount && (i & ((2 << level) - 1)) == 0
+                    && i + (2 << level) <= to) {
+                level++;
+            }
+
+            if (level == 0) {
+                final float y = source.getY(i);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            } else {
+                final Level buckets = levels.get(level - 1);
+                minY = Math.min(minY, buckets.minY[i >> level]);
+                maxY = Math.max(maxY, buckets.maxY[i >> level]);
+            }
+            i += 1 << level;
+        }
+
+        if (hasBaseLine()) {
+            minY = Math.min(minY, getBaseLine());
+            maxY = Math.max(maxY, getBaseLine());
+        }
+
+        return obtainDataBounds(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @return the index of the first of the {@code count} ascending values that is at least
+     * {@code value}
+     */
+    private static int lowerBound(int[] values, int count, int value) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] append(int[] values, int count, int value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count] = value;
+        return values;
+    }
+
+    // the pyramid is updated under the lock a background populate reads it under
+    private final SparkDataSetObserver sourceObserver = new SparkDataSetObserver() {
+        @Override
+        public void onChanged() {
+            synchronized (getLock()) {
+                truncate(0);
+                extend();
+            }
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            synchronized (getLock()) {
+                truncate(0);
+            }
+            notifyDataSetInvalidated();
+        }
+
+        @Override
+        public void onItemsAppended(int count) {
+            synchronized (getLock()) {
+                extend();
+            }
+            notifyItemsAppended(count);
+        }
+
+        @Override
+        public void onItemRangeChanged(int start, int count) {
+            synchronized (getLock()) {
+                truncate(start);
+                extend();
+            }
+            notifyItemRangeChanged(start, count);
+        }
+    };
+
+    /**
+     * The buckets of one level of the pyramid: for each, the index and Y value of its lowest and
+     * highest point.
+     */
+    private static final class Level {
+        int[] minIndex = new int[0];
+        int[] maxIndex = new int[0];
+        float[] minY = new float[0];
+        float[] maxY = new float[0];
+
+        void ensureSize(int size) {
+            if (minIndex.length < size) {
+                final int capacity = Math.max(size, minIndex.length * 2);
+                minIndex = Arrays.copyOf(minIndex, capacity);
+                maxIndex = Arrays.copyOf(maxIndex, capacity);
+                minY = Arrays.copyOf(minY, capacity);
+                maxY = Arrays.copyOf(maxY, capacity);
+            }
+        }
+
+        void set(int bucket, int minIndex, float minY, int maxIndex, float maxY) {
+            this.minIndex[bucket] = minIndex;
+            this.minY[bucket] = minY;
+            this.maxIndex[bucket] = maxIndex;
+            this.maxY[bucket] = maxY;
+        }
+
+        void combine(int bucket, Level below, int left, int right) {
+            final int min = below.minY[right] < below.minY[left] ? right : left;
+            final int max = below.maxY[right] > below.maxY[left] ? right : left;
+            set(bucket, below.minIndex[min], below.minY[min], below.maxIndex[max], below.maxY[max]);
+        }
+    }
+}
@@ -54,6 +54,13 @@ class ScrubGestureDetector implements View.OnTouchListener {
         this.enabled = enabled;
     }
 
+    /**
+     * Stops a pending long press from starting a scrub, once another gesture has taken over.
+     */
+    void cancelLongPress() {
+        handler.removeCallbacks(longPressRunnable);
+    }
+
     @Override
     public boolean onTouch(View v, MotionEvent event) {
         if (!enabled) return false;
@@ -0,0 +1,137 @@
+package com.robinhood.spark;
+
+/**
+ * Tracks the minimum and maximum of a first-in-first-out window of values in amortised O(1) per
+ * operation, using a pair of monotonic deques. Useful for keeping the data bounds of adapters that
+ * drop their oldest points as new ones arrive.
+ * @see StreamingSparkAdapter
+ */
+public final class SlidingWindowMinMax {
+    private final MonotonicDeque minDeque;
+    private final MonotonicDeque maxDeque;
+    private final int capacity;
+
+    // sequence number of the next value to be added, and of the oldest value still in the window
+    private long nextSequence;
+    private long oldestSequence;
+
+    /**
+     * @param capacity the maximum number of values the window will hold at once
+     */
+    public SlidingWindowMinMax(int capacity) {
+        this.capacity = capacity;
+        minDeque = new MonotonicDeque(capacity, true);
+        maxDeque = new MonotonicDeque(capacity, false);
+    }
+
+    /**
+     * Adds a value to the newest end of the window. If the window is full, remove the oldest value
+     * first.
+     */
+    public void add(float value) {
+        if (size() == capacity) {
+            throw new IllegalStateException("window is full, remove the oldest value first");
+        }
+
+        minDeque.add(nextSequence, value);
+        maxDeque.add(nextSequence, value);
+        nextSequence++;
+    }
+
+    /**
+     * Removes the value at the oldest end of the window.
+     */
+    public void removeOldest() {
+        if (isEmpty()) {
+            throw new IllegalStateException("trying to remove from an empty window");
+        }
+
+        minDeque.removeUpTo(oldestSequence);
+        maxDeque.removeUpTo(oldestSequence);
+        oldestSequence++;
+    }
+
+    public void clear() {
+        minDeque.clear();
+        maxDeque.clear();
+        nextSequence = 0;
+        oldestSequence = 0;
+    }
+
+    public boolean isEmpty() {
+        return nextSequence == oldestSequence;
+    }
+
+    public int size() {
+        return (int) (nextSequence - oldestSequence);
+    }
+
+    /**
+     * @return the smallest value in the window, or {@link Float#MAX_VALUE} if it is empty.
+     */
+    public float getMin() {
+        return isEmpty() ? Float.MAX_VALUE : minDeque.peekFirst();
+    }
+
+    /**
+     * @return the largest value in the window, or -{@link Float#MAX_VALUE} if it is empty.
+     */
+    public float getMax() {
+        return isEmpty() ? -Float.MAX_VALUE : maxDeque.peekFirst();
+    }
+
+    /**
+     * A ring buffer of (sequence, value) pairs whose values are kept strictly increasing (for a
+     * min deque) or strictly decreasing (for a max deque) from first to last.
+     */
+    private static final class MonotonicDeque {
+        private final long[] sequences;
+        private final float[] values;
+        private final boolean ascending;
+        private int first;
+        private int size;
+
+        MonotonicDeque(int capacity, boolean ascending) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be positive: " + capacity);
+            }
+            this.sequences = new long[capacity];
+            this.values = new float[capacity];
+            this.ascending = ascending;
+        }
+
+        void add(long sequence, float value) {
+            // drop every value the new one dominates; they can never be the extreme again
+            while (size > 0) {
+                final float last = values[slot(size - 1)];
+                if (ascending ? last < value : last > value) break;
+                size--;
+            }
+
+            final int slot = slot(size);
+            sequences[slot] = sequence;
+            values[slot] = value;
+            size++;
+        }
+
+        void removeUpTo(long sequence) {
+            while (size > 0 && sequences[first] <= sequence) {
+                first = (first + 1) % values.length;
+                size--;
+            }
+        }
+
+        float peekFirst() {
+            return values[first];
+        }
+
+        void clear() {
+            first = 0;
+            size = 0;
+        }
+
+        private int slot(int index) {
+            return (first + index) % values.length;
+        }
+    }
+}
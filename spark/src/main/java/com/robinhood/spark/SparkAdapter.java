@@ -20,15 +20,41 @@ import android.database.DataSetObservable;
 import android.database.DataSetObserver;
 import android.graphics.RectF;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A simple adapter class - evenly distributes your points along the x axis, does not draw a base
  * line, and has support for registering/notifying {@link DataSetObserver}s when data is changed.
+ *
+ * {@link SparkView} reads the adapter while holding the monitor of {@link #getLock()}, which is
+ * the adapter itself by default. Adapters whose data is written from another thread, or that are
+ * shown by a view building its paths in the background, should make their writes under the same
+ * lock and call {@link #markDataChanged()}, as {@link StreamingSparkAdapter} does.
  */
 public abstract class SparkAdapter {
-    private final DataSetObservable observable = new DataSetObservable();
+    /**
+     * Number of points scanned per bulk copy when computing the default data bounds.
+     */
+    private static final int BOUNDS_CHUNK_SIZE = 256;
+
+    private final SparkDataSetObservable observable = new SparkDataSetObservable();
+    private @Nullable float[] boundsChunk;
+    private @Nullable RectF dataBounds;
+
+    // extremes of the points scanned by getDataBounds(), kept between calls for incremental bounds,
+    // in the order of the RectF fields: min X, min Y, max X, max Y
+    private boolean incrementalDataBounds;
+    private boolean scannedBoundsStale;
+    private int scannedCount;
+    private final float[] scannedExtremes = new float[4];
+    // extremes of the points scanned by getDataBounds(int, int)
+    private final float[] rangeExtremes = new float[4];
+
+    // incremented on every change to the data, see getDataVersion()
+    private final AtomicInteger dataVersion = new AtomicInteger();
 
     /**
      * @return the number of points to be drawn
@@ -53,6 +79,28 @@ public abstract class SparkAdapter {
      */
     public abstract float getY(int index);
 
+    /**
+     * Copies the X values of {@code count} points, starting at index {@code from}, into the first
+     * {@code count} slots of {@code dst}. By default this calls {@link #getX(int)} once per point;
+     * adapters backed by primitive arrays should override it with a bulk copy.
+     */
+    public void copyX(@NonNull float[] dst, int from, int count) {
+        for (int i = 0; i < count; i++) {
+            dst[i] = getX(from + i);
+        }
+    }
+
+    /**
+     * Copies the Y values of {@code count} points, starting at index {@code from}, into the first
+     * {@code count} slots of {@code dst}. By default this calls {@link #getY(int)} once per point;
+     * adapters backed by primitive arrays should override it with a bulk copy.
+     */
+    public void copyY(@NonNull float[] dst, int from, int count) {
+        for (int i = 0; i < count; i++) {
+            dst[i] = getY(from + i);
+        }
+    }
+
     /**
      * MUST return instances contained in the set returned by {@link #getSupportedPathTypes()}
      * @return The path type for the path connecting to the point at the given index
@@ -104,29 +152,125 @@ public abstract class SparkAdapter {
      *     <li>bottom = the maximum Y value</li>
      * </ul>
      *
+     * The default implementation reuses the same RectF across calls, so don't hold on to it.
+     *
      * @return a RectF of the bounds desired around this adapter's data.
+     * @see #setIncrementalDataBounds(boolean)
      */
     @NonNull
     public RectF getDataBounds() {
         final int count = getCount();
-        final boolean hasBaseLine = hasBaseLine();
+        if (!incrementalDataBounds || scannedBoundsStale || count < scannedCount) {
+            resetExtremes(scannedExtremes);
+            scannedCount = 0;
+            scannedBoundsStale = false;
+        }
+        scanDataBounds(scannedCount, count, scannedExtremes);
+        scannedCount = count;
 
-        float minY = hasBaseLine ? getBaseLine() : Float.MAX_VALUE;
-        float maxY = hasBaseLine ? minY : -Float.MAX_VALUE;
-        float minX = Float.MAX_VALUE;
-        float maxX = -Float.MAX_VALUE;
-        for (int i = 0; i < count; i++) {
-            final float x = getX(i);
-            minX = Math.min(minX, x);
-            maxX = Math.max(maxX, x);
+        return obtainDataBounds(scannedExtremes);
+    }
 
-            final float y = getY(i);
-            minY = Math.min(minY, y);
-            maxY = Math.max(maxY, y);
+    /**
+     * Gets the boundaries of the points in [from, to), for graphs showing only part of the data
+     * set; see {@link SparkView#setVisibleXRange(float, float)}. By default, this will be the min
+     * and max of those points, along with the base line. Override it along with
+     * {@link #getDataBounds()} for custom behavior.
+     *
+     * The default implementation reuses the same RectF across calls, so don't hold on to it.
+     */
+    @NonNull
+    public RectF getDataBounds(int from, int to) {
+        resetExtremes(rangeExtremes);
+        scanDataBounds(from, to, rangeExtremes);
+        return obtainDataBounds(rangeExtremes);
+    }
+
+    private static void resetExtremes(float[] extremes) {
+        extremes[0] = Float.MAX_VALUE;
+        extremes[1] = Float.MAX_VALUE;
+        extremes[2] = -Float.MAX_VALUE;
+        extremes[3] = -Float.MAX_VALUE;
+    }
+
+    /**
+     * Returns the reused RectF set to the given extremes, widened to include the base line.
+     */
+    private RectF obtainDataBounds(float[] extremes) {
+        float minY = extremes[1];
+        float maxY = extremes[3];
+        if (hasBaseLine()) {
+            minY = Math.min(minY, getBaseLine());
+            maxY = Math.max(maxY, getBaseLine());
+        }
+
+        return obtainDataBounds(extremes[0], minY, extremes[2], maxY);
+    }
+
+    /**
+     * Folds the points in [from, to) into the given extremes.
+     */
+    private void scanDataBounds(int from, int to, float[] extremes) {
+        float minX = extremes[0];
+        float minY = extremes[1];
+        float maxX = extremes[2];
+        float maxY = extremes[3];
+
+        // scan the data in chunks so we stay in tight loops over primitive arrays
+        if (boundsChunk == null) {
+            boundsChunk = new float[BOUNDS_CHUNK_SIZE];
+        }
+        final float[] chunk = boundsChunk;
+        for (int start = from; start < to; start += chunk.length) {
+            final int chunkCount = Math.min(chunk.length, to - start);
+
+            copyX(chunk, start, chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                minX = Math.min(minX, chunk[i]);
+                maxX = Math.max(maxX, chunk[i]);
+            }
+
+            copyY(chunk, start, chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                minY = Math.min(minY, chunk[i]);
+                maxY = Math.max(maxY, chunk[i]);
+            }
         }
 
-        // set values on the return object
-        return createRectF(minX, minY, maxX, maxY);
+        extremes[0] = minX;
+        extremes[1] = minY;
+        extremes[2] = maxX;
+        extremes[3] = maxY;
+    }
+
+    /**
+     * Enables incremental upkeep of the default {@link #getDataBounds()} for append-only data.
+     * Instead of scanning every point on each call, the running extremes are kept between calls:
+     * points added to the end are folded in, and only {@link #notifyDataSetChanged()},
+     * {@link #notifyItemRangeChanged(int, int)} or a shrinking count cause a full rescan.
+     *
+     * Only enable this if every change to existing points is followed by one of those
+     * notifications. For windowed data that also drops its oldest points, track the bounds with a
+     * {@link SlidingWindowMinMax} instead, as {@link StreamingSparkAdapter} does.
+     */
+    protected final void setIncrementalDataBounds(boolean enabled) {
+        incrementalDataBounds = enabled;
+        scannedBoundsStale = true;
+    }
+
+    /**
+     * Returns the RectF reused by {@link #getDataBounds()}, set to the given bounds.
+     */
+    RectF obtainDataBounds(float left, float top, float right, float bottom) {
+        if (dataBounds == null) {
+            dataBounds = createRectF(left, top, right, bottom);
+        } else {
+            dataBounds.left = left;
+            dataBounds.top = top;
+            dataBounds.right = right;
+            dataBounds.bottom = bottom;
+        }
+        return dataBounds;
     }
 
     /**
@@ -137,6 +281,44 @@ public abstract class SparkAdapter {
         return new RectF(left, top, right, bottom);
     }
 
+    /**
+     * Returns an immutable copy of the adapter's points, path types, events, base line and bounds,
+     * for building paths away from the thread the data is written on. Call it while holding the
+     * monitor of {@link #getLock()}.
+     */
+    @NonNull
+    SparkSnapshot snapshot() {
+        return SparkSnapshot.of(this);
+    }
+
+    /**
+     * @return the object whose monitor is held while the adapter is read by a {@link SparkView}.
+     * By default this is the adapter itself, so writes made in {@code synchronized} methods of the
+     * adapter are never seen halfway through.
+     */
+    @NonNull
+    protected Object getLock() {
+        return this;
+    }
+
+    /**
+     * @return a number that changes whenever the data does, as reported by the {@code notify}
+     * methods and {@link #markDataChanged()}, for telling whether anything built from the data is
+     * still current
+     */
+    public final int getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Marks the data as changed without notifying observers, for adapters written from another
+     * thread that notify on the main thread later. Call it under {@link #getLock()}, along with the
+     * write, so that anything built from the data before is known to be out of date from then on.
+     */
+    protected final void markDataChanged() {
+        dataVersion.incrementAndGet();
+    }
+
     /**
      * @return true if you wish to draw a "base line" - a horizontal line across the graph used
      * to compare the rest of the graph's points against.
@@ -157,15 +339,41 @@ public abstract class SparkAdapter {
      * reflecting the data set should refresh itself.
      */
     public final void notifyDataSetChanged() {
+        markDataChanged();
+        scannedBoundsStale = true;
         observable.notifyChanged();
     }
 
+    /**
+     * Notifies the attached observers that {@code count} points were added to the end of the data
+     * set and nothing else changed. A {@link SparkView} can then extend its existing paths instead
+     * of rebuilding them, as long as the data bounds stay the same. Observers that are not
+     * {@link SparkDataSetObserver}s are sent {@link #notifyDataSetChanged()}.
+     */
+    public final void notifyItemsAppended(int count) {
+        markDataChanged();
+        observable.notifyItemsAppended(count);
+    }
+
+    /**
+     * Notifies the attached observers that the {@code count} points starting at index
+     * {@code start} changed in place, and the number of points did not change. Observers that are
+     * not {@link SparkDataSetObserver}s are sent {@link #notifyDataSetChanged()}.
+     */
+    public final void notifyItemRangeChanged(int start, int count) {
+        markDataChanged();
+        scannedBoundsStale = true;
+        observable.notifyItemRangeChanged(start, count);
+    }
+
     /**
      * Notifies the attached observers that the underlying data is no longer valid or available.
      * Once invoked this adapter is no longer valid and should not report further data set
      * changes.
      */
     public final void notifyDataSetInvalidated() {
+        markDataChanged();
+        scannedBoundsStale = true;
         observable.notifyInvalidated();
     }
 
@@ -175,6 +383,9 @@ public abstract class SparkAdapter {
      */
     public final void registerDataSetObserver(DataSetObserver observer) {
         observable.registerObserver(observer);
+        if (observable.getObserverCount() == 1) {
+            onFirstObserverRegistered();
+        }
     }
 
     /**
@@ -183,5 +394,60 @@ public abstract class SparkAdapter {
      */
     public final void unregisterDataSetObserver(DataSetObserver observer) {
         observable.unregisterObserver(observer);
+        if (observable.getObserverCount() == 0) {
+            onLastObserverUnregistered();
+        }
+    }
+
+    /**
+     * Called when the first observer is registered, for adapters that only need to follow their
+     * own sources while someone is watching them. Does nothing by default.
+     */
+    protected void onFirstObserverRegistered() {
+    }
+
+    /**
+     * Called when the last observer is unregistered. Does nothing by default.
+     * @see #onFirstObserverRegistered()
+     */
+    protected void onLastObserverUnregistered() {
+    }
+
+    /**
+     * Dispatches the finer-grained notifications to {@link SparkDataSetObserver}s, falling back to
+     * {@link DataSetObserver#onChanged()} for everyone else.
+     */
+    private static class SparkDataSetObservable extends DataSetObservable {
+        int getObserverCount() {
+            synchronized (mObservers) {
+                return mObservers.size();
+            }
+        }
+
+        void notifyItemsAppended(int count) {
+            synchronized (mObservers) {
+                for (int i = mObservers.size() - 1; i >= 0; i--) {
+                    final DataSetObserver observer = mObservers.get(i);
+                    if (observer instanceof SparkDataSetObserver) {
+                        ((SparkDataSetObserver) observer).onItemsAppended(count);
+                    } else {
+                        observer.onChanged();
+                    }
+                }
+            }
+        }
+
+        void notifyItemRangeChanged(int start, int count) {
+            synchronized (mObservers) {
+                for (int i = mObservers.size() - 1; i >= 0; i--) {
+                    final DataSetObserver observer = mObservers.get(i);
+                    if (observer instanceof SparkDataSetObserver) {
+                        ((SparkDataSetObserver) observer).onItemRangeChanged(start, count);
+                    } else {
+                        observer.onChanged();
+                    }
+                }
+            }
+        }
     }
 }
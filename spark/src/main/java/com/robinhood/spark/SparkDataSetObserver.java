@@ -0,0 +1,26 @@
+package com.robinhood.spark;
+
+import android.database.DataSetObserver;
+
+/**
+ * A {@link DataSetObserver} that can also receive the finer-grained notifications sent by
+ * {@link SparkAdapter#notifyItemsAppended(int)} and
+ * {@link SparkAdapter#notifyItemRangeChanged(int, int)}. By default, both are treated as a full
+ * {@link #onChanged()}.
+ */
+public abstract class SparkDataSetObserver extends DataSetObserver {
+
+    /**
+     * Called when {@code count} points were added to the end of the adapter's data.
+     */
+    public void onItemsAppended(int count) {
+        onChanged();
+    }
+
+    /**
+     * Called when the {@code count} points starting at index {@code start} changed in place.
+     */
+    public void onItemRangeChanged(int start, int count) {
+        onChanged();
+    }
+}
@@ -0,0 +1,37 @@
+package com.robinhood.spark;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Picks which of an adapter's points a {@link SparkView} actually draws, so that large data sets
+ * don't cost one path vertex per point. The view always keeps the points where the path type
+ * changes and every event point, whatever the downsampler picks.
+ *
+ * See {@link PixelColumnDownsampler} and {@link LttbDownsampler} for the built-in strategies.
+ * @see SparkView#setDownsampler(SparkDownsampler)
+ */
+public interface SparkDownsampler {
+
+    /**
+     * @param count the number of points to draw, which is fewer than the adapter has when only
+     *              part of the graph is visible
+     * @param width the width of the graph's content area, in pixels
+     * @return true if the graph should be downsampled at all
+     */
+    boolean shouldDownsample(int count, float width);
+
+    /**
+     * Picks the points to draw out of the points in [from, to), which all have the same path type.
+     * Implementations should run in linear time and must not allocate, as this is called on every
+     * update of the graph.
+     *
+     * @param x the scaled X coordinates of the points, in pixels and in ascending order
+     * @param y the scaled Y coordinates of the points, in pixels
+     * @param width the width of the graph's content area, in pixels
+     * @param out receives the indices of the points to draw, in ascending order. Has room for at
+     *            least {@code to - from} indices.
+     * @return the number of indices written to {@code out}
+     */
+    int downsample(@NonNull float[] x, @NonNull float[] y, int from, int to, float width,
+            @NonNull int[] out);
+}
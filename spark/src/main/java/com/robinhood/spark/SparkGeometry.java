@@ -0,0 +1,631 @@
+package com.robinhood.spark;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The paths and point caches a {@link SparkView} draws and scrubs, built from an adapter's data for
+ * the view's layout. The view copies its layout into a geometry before building it, so a geometry
+ * can be built away from the main thread, from a {@link SparkSnapshot}, while another one is drawn.
+ * The view holds the adapter's {@linkplain SparkAdapter#getLock() lock} while a geometry reads it.
+ */
+final class SparkGeometry {
+
+    // the layout and options to build for, set by the view
+    final RectF contentRect;
+    int width, height;
+    int paddingTop, paddingBottom, paddingStart;
+    float lineWidth;
+    @SparkView.FillType int fillType;
+    float eventDotRadius;
+    @Nullable SparkDownsampler downsampler;
+    // the range of X values shown, or NaN to show every point
+    float visibleMinX = Float.NaN;
+    float visibleMaxX = Float.NaN;
+    // the adapter's supported path types, in the order of the view's paint tables
+    SparkPathType[] pathTypes = new SparkPathType[0];
+
+    // the built paths
+    final SparkPaths sparkPaths;
+    final Path baseLinePath;
+    // the dots of the events, one path per path type of the points they're on, indexed like
+    // pathTypes; null for path types without events
+    Path[] eventPaths = new Path[0];
+    @Nullable SparkView.ScaleHelper scaleHelper;
+    // the y coordinate the segments are filled up or down to, or NaN without a fill
+    float fillEdge = Float.NaN;
+
+    // the ascending x coordinate of every scrubbable point, and its adapter index
+    float[] xPoints = new float[0];
+    int[] xPointIndices = new int[0];
+    int xPointCount;
+    // the x coordinate of every event, its adapter index and whether scrubbing snaps to it, in
+    // ascending order
+    float[] eventXPoints = new float[0];
+    int[] eventPointIndices = new int[0];
+    boolean[] eventSnaps = new boolean[0];
+    int eventPointCount;
+
+    // for each pixel column of the view, the position in xPoints nearest to it and the position in
+    // eventXPoints of the event to snap to, or -1; built on the first scrub after the points change
+    private int[] scrubPoints = new int[0];
+    private int[] scrubEvents = new int[0];
+    private boolean scrubTableValid;
+    private float scrubTableSnapDistance;
+
+    // the adapter's data version the points were read at, see SparkAdapter.getDataVersion()
+    int dataVersion;
+
+    // the path type of the last segment in sparkPaths, and the adapter index it starts at
+    @Nullable SparkPathType lastPathType;
+    private int lastSegmentStart;
+
+    // the adapter being read while building
+    private SparkAdapter source;
+
+    // scratch buffers holding the scaled points of the current pass
+    private float[] scaledXPoints = new float[0];
+    private float[] scaledYPoints = new float[0];
+    // adapter index of each of the scaled points
+    private int[] pointIndices = new int[0];
+    // the level of a PyramidSparkAdapter being drawn from, or 0 to draw every point
+    private int pyramidLevel;
+    // the adapter indices of the visible points, plus one neighbour on each side
+    private int visibleFrom;
+    private int visibleTo;
+    // scratch buffers of indices into the scaled points, for downsampling
+    private int[] keptIndices = new int[0];
+    private int[] eventIndices = new int[0];
+    private int[] mergedIndices = new int[0];
+
+    SparkGeometry() {
+        this(new RectF(), new SparkPaths(), new Path());
+    }
+
+    /**
+     * Hook for unit tests, which can't use the real graphics classes.
+     */
+    @VisibleForTesting
+    SparkGeometry(RectF contentRect, SparkPaths sparkPaths, Path baseLinePath) {
+        this.contentRect = contentRect;
+        this.sparkPaths = sparkPaths;
+        this.baseLinePath = baseLinePath;
+    }
+
+    boolean hasVisibleXRange() {
+        return !Float.isNaN(visibleMinX);
+    }
+
+    /**
+     * Rebuilds every path from the adapter's data.
+     * @return false if there are fewer than 2 points, in which case everything is cleared
+     */
+    boolean populate(@NonNull SparkAdapter adapter) {
+        final int adapterCount = adapter.getCount();
+
+        // to draw anything, we need 2 or more points
+        if (adapterCount < 2) {
+            clear();
+            return false;
+        }
+
+        source = adapter;
+        updateVisibleIndices(adapterCount);
+        scaleHelper = createScaleHelper(fillType != SparkView.FillType.NONE);
+        fillEdge = getFillEdge();
+
+        // Reset points caches
+        xPointCount = 0;
+        eventPointCount = 0;
+
+        // Reset all of our paths.
+        if (eventPaths.length != pathTypes.length) {
+            eventPaths = Arrays.copyOf(eventPaths, pathTypes.length);
+        }
+        resetEventPaths();
+        sparkPaths.reset();
+
+        lastPathType = null;
+        pyramidLevel = getPyramidLevel(visibleFrom, visibleTo);
+        tessellate(visibleFrom, visibleTo);
+
+        // Add the last path to the list of paths.
+        sparkPaths.endPathSegment(lastPathType);
+
+        // make our base line path
+        baseLinePath.reset();
+        if (adapter.hasBaseLine()) {
+            float scaledBaseLine = scaleHelper.getY(adapter.getBaseLine());
+            baseLinePath.moveTo(0, scaledBaseLine);
+            baseLinePath.lineTo(width, scaledBaseLine);
+        }
+
+        source = null;
+        return true;
+    }
+
+    /**
+     * Copies what {@link #populate(SparkAdapter)} reads from the adapter, so the paths can be
+     * built from the copy while the adapter goes on changing: every point, or for a
+     * {@link PyramidSparkAdapter}, only the visible points of the level they're drawn at. Call it
+     * while holding the monitor of the adapter's {@link SparkAdapter#getLock()}.
+     */
+    @NonNull
+    SparkSnapshot snapshot(@NonNull SparkAdapter adapter) {
+        if (adapter instanceof PyramidSparkAdapter) {
+            source = adapter;
+            updateVisibleIndices(adapter.getCount());
+            final int level = getPyramidLevel(visibleFrom, visibleTo);
+            source = null;
+            if (level > 0) {
+                return ((PyramidSparkAdapter) adapter).snapshot(level, visibleFrom, visibleTo);
+            }
+        }
+        return adapter.snapshot();
+    }
+
+    void clear() {
+        scaleHelper = null;
+        fillEdge = Float.NaN;
+        xPointCount = 0;
+        eventPointCount = 0;
+        scrubTableValid = false;
+        lastPathType = null;
+        sparkPaths.reset();
+        baseLinePath.reset();
+        resetEventPaths();
+    }
+
+    /**
+     * Extends the paths with the {@code count} points appended to the end of the adapter.
+     * @return false if the paths couldn't be updated in place and need to be populated again
+     */
+    boolean append(@NonNull SparkAdapter adapter, int count) {
+        final int adapterCount = adapter.getCount();
+        final int start = adapterCount - count;
+        if (start != xPointCount || !canUpdateInPlace(adapter)) {
+            return false;
+        }
+        // the points drawn keep their bounds, so only the appended points can change them
+        if (!scaleHelper.containsBounds(adapter.getDataBounds(start, adapterCount))) {
+            return false;
+        }
+
+        source = adapter;
+        sparkPaths.resumePathSegment(lastPathType);
+        tessellate(start, adapterCount);
+        sparkPaths.endPathSegment(lastPathType);
+        source = null;
+        return true;
+    }
+
+    /**
+     * Updates the paths for the {@code count} points starting at {@code start}, which changed in
+     * place. Only changes within the last segment are handled, which covers the common case of a
+     * live graph updating its latest point.
+     * @return false if the paths couldn't be updated in place and need to be populated again
+     */
+    boolean updateRange(@NonNull SparkAdapter adapter, int start, int count) {
+        final int adapterCount = adapter.getCount();
+        if (adapterCount != xPointCount || start < lastSegmentStart
+                || start + count > adapterCount || !canUpdateInPlace(adapter)) {
+            return false;
+        }
+        // the changed points may have been the extremes, so all of them are checked
+        if (!scaleHelper.hasBounds(adapter.getDataBounds())) {
+            return false;
+        }
+
+        // drop the last segment and its cached points, then tessellate it again
+        source = adapter;
+        final int segmentStart = lastSegmentStart;
+        sparkPaths.removeLastPathSegment(lastPathType);
+        lastPathType = null;
+        xPointCount = segmentStart;
+        resetEventPaths();
+        int keptEventCount = 0;
+        while (keptEventCount < eventPointCount
+                && eventPointIndices[keptEventCount] < segmentStart) {
+            addEventDot(source.getPathType(eventPointIndices[keptEventCount]),
+                    eventXPoints[keptEventCount],
+                    scaleHelper.getY(adapter.getY(eventPointIndices[keptEventCount])));
+            keptEventCount++;
+        }
+        eventPointCount = keptEventCount;
+
+        tessellate(segmentStart, adapterCount);
+        sparkPaths.endPathSegment(lastPathType);
+        source = null;
+        return true;
+    }
+
+    /**
+     * Switches to the given fill type. The lines are kept as they are, since segments are only
+     * closed along the fill edge when they're filled.
+     * @return false if the paths need to be populated again, because filling changes the scale:
+     * unfilled lines are inset by half the legacy line width
+     */
+    boolean updateFillType(@SparkView.FillType int fillType) {
+        if (scaleHelper == null) return false;
+        final boolean fillChanged =
+                (fillType != SparkView.FillType.NONE) != (this.fillType != SparkView.FillType.NONE);
+        if (fillChanged && lineWidth != 0) return false;
+
+        this.fillType = fillType;
+        fillEdge = getFillEdge();
+        return true;
+    }
+
+    /**
+     * Returns true if the paths could be updated in place for a change in the adapter's data,
+     * rather than being populated again, as long as the change leaves the data bounds as they are.
+     */
+    private boolean canUpdateInPlace(SparkAdapter adapter) {
+        if (scaleHelper == null || lastPathType == null) return false;
+
+        // a visible slice is fitted to the points in it, so it is simply rebuilt
+        if (hasVisibleXRange()) return false;
+
+        // downsampled points can't be extended point by point
+        source = adapter;
+        final int adapterCount = adapter.getCount();
+        final boolean reduced =
+                getPyramidLevel(0, adapterCount) > 0 || shouldDownsample(adapterCount);
+        source = null;
+        return !reduced;
+    }
+
+    /**
+     * Scales the adapter's points in [from, to) and adds them to {@linkplain #sparkPaths},
+     * continuing the open segment of {@linkplain #lastPathType}, if any. The caller is responsible
+     * for ending the last segment.
+     */
+    private void tessellate(int from, int to) {
+        scrubTableValid = false;
+        final int count = collectPoints(from, to);
+        if (count == 0) return;
+        final float[] scaledX = scaledXPoints;
+        final int[] indices = pointIndices;
+
+        // scrubbing needs every point, even the ones we don't draw
+        if (xPoints.length < xPointCount + count) {
+            final int capacity = Math.max(xPointCount + count, xPoints.length * 2);
+            xPoints = Arrays.copyOf(xPoints, capacity);
+            xPointIndices = Arrays.copyOf(xPointIndices, capacity);
+        }
+        System.arraycopy(scaledX, 0, xPoints, xPointCount, count);
+        for (int j = 0; j < count; j++) {
+            xPointIndices[xPointCount + j] = getAdapterIndex(indices[j]);
+        }
+        xPointCount += count;
+
+        // decide from the points drawn: a zoomed in slice of a long graph may need no downsampling
+        final boolean downsample = shouldDownsample(count);
+        if (downsample && keptIndices.length < count) {
+            keptIndices = new int[count];
+            eventIndices = new int[count];
+            mergedIndices = new int[count];
+        }
+
+        // split the points into runs of the same path type, each of which is one segment
+        int runStart = 0;
+        SparkPathType runPathType = source.getPathType(indices[0]);
+        for (int j = 1; j <= count; j++) {
+            final SparkPathType pathType = j < count ? source.getPathType(indices[j]) : null;
+            if (pathType == null || !pathType.equals(runPathType)) {
+                tessellateRun(runStart, j, runPathType, downsample);
+                runStart = j;
+                runPathType = pathType;
+            }
+        }
+    }
+
+    /**
+     * Fills the scaled points and their {@linkplain #pointIndices} with the adapter's points in
+     * [from, to): all of them, or only the ones a {@link PyramidSparkAdapter} picks at
+     * {@linkplain #pyramidLevel}.
+     * @return the number of points
+     */
+    private int collectPoints(int from, int to) {
+        if (to <= from) return 0;
+
+        final int count;
+        if (pyramidLevel > 0) {
+            final PyramidSparkAdapter pyramid = (PyramidSparkAdapter) source;
+            ensurePointCapacity(pyramid.getMaxPointCount(pyramidLevel, from, to));
+            count = pyramid.getPoints(pyramidLevel, from, to, pointIndices);
+            for (int j = 0; j < count; j++) {
+                scaledXPoints[j] = source.getX(pointIndices[j]);
+                scaledYPoints[j] = source.getY(pointIndices[j]);
+            }
+        } else {
+            // Bulk copy the data, so the loops that follow only read primitive arrays.
+            count = to - from;
+            ensurePointCapacity(count);
+            source.copyX(scaledXPoints, from, count);
+            source.copyY(scaledYPoints, from, count);
+            for (int j = 0; j < count; j++) {
+                pointIndices[j] = from + j;
+            }
+        }
+
+        scaleHelper.scaleX(scaledXPoints, count);
+        scaleHelper.scaleY(scaledYPoints, count);
+        return count;
+    }
+
+    private void ensurePointCapacity(int count) {
+        if (scaledXPoints.length < count) {
+            scaledXPoints = new float[count];
+            scaledYPoints = new float[count];
+            pointIndices = new int[count];
+        }
+    }
+
+    /**
+     * Adds the scaled points in [start, end) of a single path type to the paths.
+     */
+    private void tessellateRun(int start, int end, SparkPathType pathType, boolean downsample) {
+        final float[] scaledX = scaledXPoints;
+        final float[] scaledY = scaledYPoints;
+        final int[] indices = pointIndices;
+
+        // events are always drawn at their exact position
+        int eventCount = 0;
+        for (int j = start; j < end; j++) {
+            final int i = indices[j];
+            if (source.isEvent(i)) {
+                addEventDot(pathType, scaledX[j], scaledY[j]);
+                addEventPoint(getAdapterIndex(i), scaledX[j], source.shouldSnapToEvent(i));
+                if (downsample) {
+                    eventIndices[eventCount++] = j;
+                }
+            }
+        }
+
+        if (!downsample) {
+            for (int j = start; j < end; j++) {
+                addPoint(getAdapterIndex(indices[j]), pathType, scaledX[j], scaledY[j]);
+            }
+            return;
+        }
+
+        // keep the line running through every event, whatever the downsampler picked
+        int keptCount = downsampler.downsample(
+                scaledX, scaledY, start, end, contentRect.width(), keptIndices);
+        keptCount = SparkView.mergeSortedIndices(
+                keptIndices, keptCount, eventIndices, eventCount, mergedIndices);
+        for (int k = 0; k < keptCount; k++) {
+            final int j = mergedIndices[k];
+            addPoint(getAdapterIndex(indices[j]), pathType, scaledX[j], scaledY[j]);
+        }
+    }
+
+    /**
+     * Adds the point at the given adapter index to the paths, starting a new segment if its path
+     * type differs from the last one.
+     */
+    private void addPoint(int index, SparkPathType pathType, float x, float y) {
+        if (lastPathType == null || !pathType.equals(lastPathType)) {
+            if (lastPathType != null) {
+                // We're starting a new path, so the current one ends here.
+                sparkPaths.endPathSegment(lastPathType);
+            }
+
+            // Start a new path.
+            sparkPaths.startPathSegment(pathType, x, y);
+            if (index == 0) {
+                // the very first point is also drawn as a line to itself
+                sparkPaths.addToPathSegment(pathType, x, y);
+            }
+            lastPathType = pathType;
+            lastSegmentStart = index;
+        } else {
+            sparkPaths.addToPathSegment(pathType, x, y);
+        }
+    }
+
+    /**
+     * Builds the per-column scrub lookup table for the current points, if it is out of date. Must
+     * be called before {@link #getScrubPoint(float)} and {@link #getScrubEvent(float)}.
+     * @param snapDistance how far from an event, in pixels, scrubbing snaps to it
+     */
+    void updateScrubTable(float snapDistance) {
+        if (scrubTableValid && scrubTableSnapDistance == snapDistance) return;
+
+        final int columns = Math.max(width, 1);
+        if (scrubPoints.length < columns) {
+            scrubPoints = new int[columns];
+            scrubEvents = new int[columns];
+        }
+        for (int column = 0; column < columns; column++) {
+            // the table holds the answer for the middle of each column
+            final float x = column + 0.5f;
+            scrubPoints[column] = xPointCount == 0
+                    ? -1 : SparkView.getNearestIndex(xPoints, xPointCount, x);
+            scrubEvents[column] = findEventToSnapTo(x, snapDistance);
+        }
+        scrubTableValid = true;
+        scrubTableSnapDistance = snapDistance;
+    }
+
+    /**
+     * @return the position in {@linkplain #xPoints} nearest to the given x coordinate, or -1 if
+     * there are no points
+     */
+    int getScrubPoint(float x) {
+        return scrubPoints[getScrubColumn(x)];
+    }
+
+    /**
+     * @return the position in {@linkplain #eventXPoints} of the event to snap to when scrubbing at
+     * the given x coordinate, or -1 if there is none
+     */
+    int getScrubEvent(float x) {
+        return scrubEvents[getScrubColumn(x)];
+    }
+
+    /**
+     * @return the adapter index a scrub at the given x coordinate reports: that of the event it
+     * snaps to, or else that of the nearest point
+     */
+    int getScrubIndex(float x) {
+        final int event = getScrubEvent(x);
+        return event >= 0 ? eventPointIndices[event] : xPointIndices[getScrubPoint(x)];
+    }
+
+    /**
+     * @return the x coordinate to draw the scrub line at for a scrub at the given x coordinate:
+     * that of the event it snaps to, or else x itself
+     */
+    float getScrubX(float x) {
+        final int event = getScrubEvent(x);
+        return event >= 0 ? eventXPoints[event] : x;
+    }
+
+    private int getScrubColumn(float x) {
+        return Math.max(0, Math.min((int) x, Math.max(width, 1) - 1));
+    }
+
+    /**
+     * @return the position in {@linkplain #eventXPoints} of the nearest event to snap to within
+     * {@code snapDistance} of {@code x}, or -1 if there is none
+     */
+    private int findEventToSnapTo(float x, float snapDistance) {
+        // binary search for the first event past the left edge of the snap window
+        final float minX = x - snapDistance;
+        int low = 0;
+        int high = eventPointCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (eventXPoints[mid] <= minX) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        // then walk the window for the nearest event that snaps
+        int nearest = -1;
+        float nearestDistance = snapDistance;
+        for (int event = low; event < eventPointCount; event++) {
+            final float distance = eventXPoints[event] - x;
+            if (distance >= snapDistance) break;
+            if (eventSnaps[event] && Math.abs(distance) < nearestDistance) {
+                nearest = event;
+                nearestDistance = Math.abs(distance);
+            }
+        }
+        return nearest;
+    }
+
+    private void addEventPoint(int index, float x, boolean snap) {
+        if (eventPointCount == eventXPoints.length) {
+            final int capacity = Math.max(8, eventPointCount * 2);
+            eventXPoints = Arrays.copyOf(eventXPoints, capacity);
+            eventPointIndices = Arrays.copyOf(eventPointIndices, capacity);
+            eventSnaps = Arrays.copyOf(eventSnaps, capacity);
+        }
+        eventXPoints[eventPointCount] = x;
+        eventPointIndices[eventPointCount] = index;
+        eventSnaps[eventPointCount] = snap;
+        eventPointCount++;
+    }
+
+    private void addEventDot(SparkPathType pathType, float x, float y) {
+        final int ordinal = SparkPath.indexOf(pathTypes, pathType);
+        if (eventPaths[ordinal] == null) {
+            eventPaths[ordinal] = new Path();
+        }
+        eventPaths[ordinal].addCircle(x, y, eventDotRadius, Path.Direction.CW);
+    }
+
+    private void resetEventPaths() {
+        for (Path eventPath : eventPaths) {
+            if (eventPath != null) {
+                eventPath.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns the index in the view's adapter of the source's point at the given index, which
+     * differs when building from a pyramid's snapshot of only some of the points.
+     */
+    private int getAdapterIndex(int index) {
+        return source instanceof SparkSnapshot
+                ? ((SparkSnapshot) source).getSourceIndex(index)
+                : index;
+    }
+
+    /**
+     * Returns true if the paths for {@code count} points should be downsampled.
+     */
+    private boolean shouldDownsample(int count) {
+        return downsampler != null && downsampler.shouldDownsample(count, contentRect.width());
+    }
+
+    /**
+     * Returns the pyramid level to draw the points in [from, to) at, or 0 if the adapter isn't a
+     * {@link PyramidSparkAdapter} or there are few enough points to draw them all.
+     */
+    private int getPyramidLevel(int from, int to) {
+        return source instanceof PyramidSparkAdapter
+                ? ((PyramidSparkAdapter) source).getLevel(from, to, contentRect.width())
+                : 0;
+    }
+
+    /**
+     * Finds the adapter indices to draw: the points within the visible X range, along with the
+     * nearest point on either side so the line runs off the edges of the graph.
+     */
+    private void updateVisibleIndices(int count) {
+        if (hasVisibleXRange()) {
+            visibleFrom = Math.max(
+                    SparkView.findFirstIndex(source, count, visibleMinX, false) - 1, 0);
+            visibleTo = Math.min(
+                    SparkView.findFirstIndex(source, count, visibleMaxX, true) + 1, count);
+        } else {
+            visibleFrom = 0;
+            visibleTo = count;
+        }
+    }
+
+    /**
+     * Returns a {@link SparkView.ScaleHelper} fitting the visible X range, and the Y range of the
+     * points drawn, to the content area.
+     */
+    private SparkView.ScaleHelper createScaleHelper(boolean fill) {
+        if (!hasVisibleXRange()) {
+            return new SparkView.ScaleHelper(source, contentRect, lineWidth, fill);
+        }
+
+        final RectF bounds = source.getDataBounds(visibleFrom, visibleTo);
+        return new SparkView.ScaleHelper(visibleTo - visibleFrom, visibleMinX, bounds.top,
+                visibleMaxX, bounds.bottom, contentRect, lineWidth, fill);
+    }
+
+    private float getFillEdge() {
+        switch (fillType) {
+            case SparkView.FillType.NONE:
+                return Float.NaN;
+            case SparkView.FillType.UP:
+                return (float) paddingTop;
+            case SparkView.FillType.DOWN:
+                return (float) height - paddingBottom;
+            case SparkView.FillType.TOWARD_ZERO:
+                float zero = scaleHelper.getY(0F);
+                float bottom = (float) height - paddingBottom;
+                return Math.min(zero, bottom);
+            default:
+                throw new IllegalStateException(
+                        String.format(Locale.US, "Unknown fill-type: %d", fillType)
+                );
+        }
+    }
+}
@@ -2,31 +2,96 @@ package com.robinhood.spark;
 
 import android.graphics.Path;
 import android.support.annotation.Nullable;
-import java.util.LinkedList;
+import android.support.annotation.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class SparkPath {
-  public final List<SparkPathSegment> segments = new LinkedList<>();
+  public final List<SparkPathSegment> segments = new ArrayList<>();
   @Nullable private SparkPathSegment currentSegment = null;
   private final SparkPathType pathType;
+  // the index of pathType in the array last passed to ordinalIn(), cached along with that array
+  @Nullable private SparkPathType[] ordinalPathTypes;
+  private int ordinal;
+  // every segment this path has created, by index, so resetting the path recycles them rather than
+  // letting them go: the nth segment started after a reset is always the same object
+  private final List<SparkPathSegment> pool = new ArrayList<>();
 
   SparkPath(SparkPathType pathType) {
     this.pathType = pathType;
   }
 
-  SparkPath(SparkPath source) {
-    this(source.pathType);
+  /**
+   * Makes this path a copy of {@code source}, reusing this path's segments and their buffers.
+   */
+  void set(SparkPath source) {
+    reset();
 
-    SparkPathSegment newCurrentSegment = null;
     for (SparkPathSegment sourceSegment : source.segments) {
-      final SparkPathSegment newSegment = new SparkPathSegment(sourceSegment);
-      segments.add(newSegment);
-      if (sourceSegment.equals(source.currentSegment)) {
-        newCurrentSegment = newSegment;
-      }
+      final SparkPathSegment segment = obtainSegment(segments.size());
+      segment.set(sourceSegment);
+      segments.add(segment);
+    }
+
+    if (source.currentSegment != null) {
+      currentSegment = obtainSegment(segments.size());
+      currentSegment.set(source.currentSegment);
+    }
+  }
+
+  /**
+   * Returns the index of this path's type in {@code pathTypes}, or -1 if it isn't there, looking
+   * it up only the first time it is asked about that array. A path type can be missing while the
+   * paths of a previous adapter are still being drawn.
+   */
+  int ordinalIn(SparkPathType[] pathTypes) {
+    if (pathTypes != ordinalPathTypes) {
+      ordinal = findIndex(pathTypes, pathType);
+      ordinalPathTypes = pathTypes;
+    }
+    return ordinal;
+  }
+
+  /**
+   * Returns the index of {@code pathType} in {@code pathTypes}.
+   * @throws IllegalStateException if it isn't there, as every path type drawn must be supported
+   */
+  static int indexOf(SparkPathType[] pathTypes, SparkPathType pathType) {
+    final int index = findIndex(pathTypes, pathType);
+    if (index < 0) {
+      throw new IllegalStateException(
+          "Path type " + pathType + " is missing from the adapter's supported path types");
     }
+    return index;
+  }
 
-    currentSegment = newCurrentSegment;
+  /**
+   * Returns the index of {@code pathType} in {@code pathTypes}, or -1 if it isn't there.
+   */
+  static int findIndex(SparkPathType[] pathTypes, SparkPathType pathType) {
+    for (int i = 0; i < pathTypes.length; i++) {
+      if (pathTypes[i].equals(pathType)) return i;
+    }
+    return -1;
+  }
+
+  private SparkPathSegment obtainSegment(int index) {
+    if (index < pool.size()) {
+      return pool.get(index);
+    }
+
+    final SparkPathSegment segment = createSegment(index);
+    pool.add(segment);
+    return segment;
+  }
+
+  /**
+   * Hook for unit tests, which can't draw paths.
+   */
+  @VisibleForTesting
+  SparkPathSegment createSegment(int index) {
+    return new SparkPathSegment(pathType, index);
   }
 
   void startSegment(float x, float y) {
@@ -34,20 +99,41 @@ public class SparkPath {
       throw new IllegalStateException("trying to start segment but a segment already exists");
     }
 
-    currentSegment = new SparkPathSegment(pathType, segments.size());
+    currentSegment = obtainSegment(segments.size());
     currentSegment.moveTo(x, y);
   }
 
-  void endSegment(@Nullable Float fillEdge, int startPadding) {
+  void endSegment() {
     if (currentSegment == null) {
       throw new IllegalStateException("trying to end segment, but no segment exists");
     }
 
-    currentSegment.fillAndClose(fillEdge, startPadding);
     segments.add(currentSegment);
     currentSegment = null;
   }
 
+  void resumeLastSegment() {
+    if (currentSegment != null) {
+      throw new IllegalStateException("trying to resume segment but a segment already exists");
+    }
+    if (segments.isEmpty()) {
+      throw new IllegalStateException("trying to resume segment, but no segment exists");
+    }
+
+    currentSegment = segments.remove(segments.size() - 1);
+  }
+
+  void removeLastSegment() {
+    if (currentSegment != null) {
+      throw new IllegalStateException("trying to remove segment while a segment is in progress");
+    }
+    if (segments.isEmpty()) {
+      throw new IllegalStateException("trying to remove segment, but no segment exists");
+    }
+
+    segments.remove(segments.size() - 1).reset();
+  }
+
   void addPointToSegment(float x, float y) {
     if (currentSegment == null) {
       throw new IllegalStateException("no segment to add to");
@@ -65,12 +151,27 @@ public class SparkPath {
 
     if (currentSegment != null) {
       currentSegment.reset();
+      currentSegment = null;
     }
   }
 
   public static class SparkPathSegment extends Path {
-    public final List<Float> xPoints = new LinkedList<>();
-    public final List<Float> yPoints = new LinkedList<>();
+    private static final float[] EMPTY = new float[0];
+
+    // the vertices of the segment, in the order they were added
+    private float[] xPoints = EMPTY;
+    private float[] yPoints = EMPTY;
+    private int pointCount;
+    // the vertices as pairs of line ends, for Canvas#drawLines, and how many floats of it are up to
+    // date with them, or -1 if they need rebuilding
+    float[] lines = EMPTY;
+    private int lineFloatCount = -1;
+    // the vertices closed along a fill edge, built the first time the segment is filled and
+    // rebuilt only once the vertices or the edge change
+    @Nullable private Path fillPath;
+    private boolean fillPathValid;
+    private float fillPathEdge;
+    private int fillPathStartPadding;
     final SparkPathType pathType;
     final int indexInSparkPath;
 
@@ -79,48 +180,164 @@ public class SparkPath {
       this.indexInSparkPath = indexInSparkPath;
     }
 
-    SparkPathSegment(SparkPathSegment source) {
-      super(source);
-      this.pathType = source.pathType;
-      this.indexInSparkPath = source.indexInSparkPath;
-      this.xPoints.addAll(source.xPoints);
-      this.yPoints.addAll(source.yPoints);
+    /**
+     * Copies the path and vertices of {@code source} into this segment, reusing its buffers.
+     */
+    void set(SparkPathSegment source) {
+      super.set(source);
+
+      if (xPoints.length < source.pointCount) {
+        xPoints = new float[source.pointCount];
+        yPoints = new float[source.pointCount];
+      }
+      System.arraycopy(source.xPoints, 0, xPoints, 0, source.pointCount);
+      System.arraycopy(source.yPoints, 0, yPoints, 0, source.pointCount);
+      pointCount = source.pointCount;
+      lineFloatCount = -1;
+      fillPathValid = false;
+    }
+
+    /**
+     * @return the number of vertices in this segment
+     */
+    public int getPointCount() {
+      return pointCount;
+    }
+
+    /**
+     * @return the x coordinate of the vertex at the given index
+     */
+    public float getX(int index) {
+      checkIndex(index);
+      return xPoints[index];
+    }
+
+    /**
+     * @return the y coordinate of the vertex at the given index
+     */
+    public float getY(int index) {
+      checkIndex(index);
+      return yPoints[index];
+    }
+
+    /**
+     * Writes the segment's line into {@link #lines} as
+     * the pairs of points {@link android.graphics.Canvas#drawLines(float[], int, int,
+     * android.graphics.Paint)} takes, unless it is already up to date. Only grows the buffer, so
+     * redrawing or animating a segment doesn't allocate.
+     * @return the number of floats of {@link #lines} to draw
+     */
+    int updateLines() {
+      if (lineFloatCount >= 0) return lineFloatCount;
+
+      final int count = Math.max(0, pointCount - 1) * 4;
+      if (lines.length < count) {
+        lines = new float[count];
+      }
+      for (int i = 1, j = 0; i < pointCount; i++) {
+        lines[j++] = xPoints[i - 1];
+        lines[j++] = yPoints[i - 1];
+        lines[j++] = xPoints[i];
+        lines[j++] = yPoints[i];
+      }
+      lineFloatCount = count;
+      return count;
     }
 
     @Override public void moveTo(float x, float y) {
       super.moveTo(x, y);
-
-      xPoints.add(x);
-      yPoints.add(y);
+      addVertex(x, y);
     }
 
     @Override public void lineTo(float x, float y) {
       super.lineTo(x, y);
+      addVertex(x, y);
+    }
 
-      xPoints.add(x);
-      yPoints.add(y);
+    /**
+     * Records a vertex the path was moved or lined to. Hook for unit tests, which can't draw paths.
+     */
+    @VisibleForTesting
+    void addVertex(float x, float y) {
+      if (pointCount == xPoints.length) {
+        final int capacity = Math.max(16, pointCount * 2);
+        xPoints = Arrays.copyOf(xPoints, capacity);
+        yPoints = Arrays.copyOf(yPoints, capacity);
+      }
+      xPoints[pointCount] = x;
+      yPoints[pointCount] = y;
+      pointCount++;
+      lineFloatCount = -1;
+      fillPathValid = false;
+    }
+
+    private void checkIndex(int index) {
+      if (index < 0 || index >= pointCount) {
+        throw new IndexOutOfBoundsException("index " + index + ", count " + pointCount);
+      }
     }
 
-    void fillAndClose(@Nullable Float fillEdge, int startPadding) {
-      // if we're filling the graph in, close the path's circuit
-      if (fillEdge != null && !xPoints.isEmpty()) {
-        final float firstX = xPoints.get(0);
-        final float lastX = xPoints.get(xPoints.size() - 1);
+    /**
+     * Returns the segment's line closed along the given fill edge, to fill. The stroked path
+     * itself is never closed, so the fill can come and go without the line being rebuilt.
+     * @param fillEdge the y coordinate to fill up or down to
+     * @param startPadding added to the x coordinate the fill edge runs back to
+     */
+    Path getFillPath(float fillEdge, int startPadding) {
+      if (fillPath == null) {
+        fillPath = createFillPath();
+      }
+      if (fillPathValid && fillPathEdge == fillEdge && fillPathStartPadding == startPadding) {
+        return fillPath;
+      }
+
+      fillPath.reset();
+      if (pointCount > 0) {
+        final float firstX = xPoints[0];
+        final float lastX = xPoints[pointCount - 1];
+        fillPath.moveTo(firstX, yPoints[0]);
+        for (int i = 1; i < pointCount; i++) {
+          fillPath.lineTo(xPoints[i], yPoints[i]);
+        }
         // line up or down to the fill edge
-        lineTo(lastX, fillEdge);
+        fillPath.lineTo(lastX, fillEdge);
         // line straight left to far edge of the path
-        lineTo(startPadding + firstX, fillEdge);
+        fillPath.lineTo(startPadding + firstX, fillEdge);
 
         // closes line back on the first point
-        close();
+        fillPath.close();
       }
+      fillPathValid = true;
+      fillPathEdge = fillEdge;
+      fillPathStartPadding = startPadding;
+      return fillPath;
     }
 
+    /**
+     * Hook for unit tests, which can't draw paths.
+     */
+    @VisibleForTesting
+    Path createFillPath() {
+      return new Path();
+    }
+
+    /**
+     * Clears the path and its vertices, keeping their buffers for reuse.
+     */
     @Override public void reset() {
       super.reset();
+      clearVertices();
+    }
 
-      xPoints.clear();
-      yPoints.clear();
+    /**
+     * Forgets the vertices, keeping their buffers for reuse. Hook for unit tests, which can't
+     * draw paths.
+     */
+    @VisibleForTesting
+    void clearVertices() {
+      pointCount = 0;
+      lineFloatCount = -1;
+      fillPathValid = false;
     }
 
     @Override public boolean equals(Object o) {
@@ -141,8 +358,7 @@ public class SparkPath {
 
     @Override public String toString() {
       return "SparkPathSegment{" +
-          "xPoints=" + xPoints.size() +
-          ", yPoints=" + yPoints.size() +
+          "pointCount=" + pointCount +
           ", pathType=" + pathType.getClass().getSimpleName() +
           ", indexInSparkPath=" + indexInSparkPath +
           '}';
@@ -1,43 +1,82 @@
 package com.robinhood.spark;
 
-import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class SparkPaths {
   public final Map<SparkPathType, SparkPath> paths = new HashMap<>();
+  // the same paths in the order they were created, so drawing can walk them without an iterator
+  private final List<SparkPath> pathList = new ArrayList<>();
 
   SparkPaths() {
 
   }
 
-  SparkPaths(SparkPaths source) {
-    for (SparkPathType pathType : source.paths.keySet()) {
-      paths.put(pathType, new SparkPath(source.paths.get(pathType)));
+  /**
+   * Makes these paths a copy of {@code source}, reusing the paths and segments already held
+   * rather than allocating new ones.
+   */
+  void set(SparkPaths source) {
+    for (Map.Entry<SparkPathType, SparkPath> entry : paths.entrySet()) {
+      if (!source.paths.containsKey(entry.getKey())) {
+        entry.getValue().reset();
+      }
+    }
+
+    for (Map.Entry<SparkPathType, SparkPath> entry : source.paths.entrySet()) {
+      obtainPath(entry.getKey()).set(entry.getValue());
     }
   }
 
-  void startPathSegment(SparkPathType pathType, float x, float y) {
+  /**
+   * @return the number of paths, see {@link #getPath(int)}
+   */
+  int getPathCount() {
+    return pathList.size();
+  }
+
+  /**
+   * @return the path at the given index, in the order the paths were created
+   */
+  SparkPath getPath(int index) {
+    return pathList.get(index);
+  }
+
+  /**
+   * @return the path of the given type, created empty if there is none yet
+   */
+  SparkPath obtainPath(SparkPathType pathType) {
     SparkPath sparkPath = paths.get(pathType);
     if (sparkPath == null) {
-      sparkPath = new SparkPath(pathType);
+      sparkPath = createPath(pathType);
       paths.put(pathType, sparkPath);
+      pathList.add(sparkPath);
     }
+    return sparkPath;
+  }
+
+  /**
+   * Hook for unit tests, which can't draw paths.
+   */
+  @VisibleForTesting
+  SparkPath createPath(SparkPathType pathType) {
+    return new SparkPath(pathType);
+  }
 
-    sparkPath.startSegment(x, y);
+  void startPathSegment(SparkPathType pathType, float x, float y) {
+    obtainPath(pathType).startSegment(x, y);
   }
 
-  void endPathSegment(
-      SparkPathType pathType,
-      @Nullable Float fillEdge,
-      int startPadding
-  ) {
+  void endPathSegment(SparkPathType pathType) {
     SparkPath sparkPath = paths.get(pathType);
     if (sparkPath == null) {
       throw new IllegalStateException("Trying to end path segment, but no such path exists");
     }
 
-    sparkPath.endSegment(fillEdge, startPadding);
+    sparkPath.endSegment();
   }
 
   void addToPathSegment(SparkPathType pathType, float x, float y) {
@@ -49,11 +88,36 @@ public class SparkPaths {
     sparkPath.addPointToSegment(x, y);
   }
 
+  /**
+   * Re-opens the last segment of the given path type so more points can be added to it.
+   */
+  void resumePathSegment(SparkPathType pathType) {
+    SparkPath sparkPath = paths.get(pathType);
+    if (sparkPath == null) {
+      throw new IllegalStateException("Trying to resume path segment, but no such path exists");
+    }
+
+    sparkPath.resumeLastSegment();
+  }
+
+  /**
+   * Drops the last segment of the given path type.
+   */
+  void removeLastPathSegment(SparkPathType pathType) {
+    SparkPath sparkPath = paths.get(pathType);
+    if (sparkPath == null) {
+      throw new IllegalStateException("Trying to remove path segment, but no such path exists");
+    }
+
+    sparkPath.removeLastSegment();
+  }
+
+  /**
+   * Empties every path, keeping their segments for reuse.
+   */
   void reset() {
     for (SparkPathType pathType : paths.keySet()) {
       paths.get(pathType).reset();
     }
   }
-
-
 }
@@ -0,0 +1,254 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Set;
+
+/**
+ * An immutable copy of everything needed to build a graph's paths from an adapter: its points,
+ * the runs of path types along them, its events, base line and data bounds. Safe to read from any
+ * thread once created, while the adapter goes on changing.
+ * <p>
+ * Snapshots are taken when a graph is built in the background rather than kept up to date on
+ * every write, so writers never pay for them.
+ * @see SparkAdapter#snapshot()
+ */
+final class SparkSnapshot extends SparkAdapter {
+    // the adapter the snapshot was taken from, which holds the items, and its data version then
+    private final SparkAdapter source;
+    private final int sourceVersion;
+
+    private final int count;
+    private final float[] xData;
+    private final float[] yData;
+    // the adapter index of each point, or null if every point was copied
+    private final @Nullable int[] sourceIndices;
+
+    // the index each run of points with the same path type starts at, and that path type
+    private final int[] runStarts;
+    private final SparkPathType[] runPathTypes;
+
+    // ascending indices of the event points, and whether to snap to each
+    private final int[] eventIndices;
+    private final boolean[] eventSnaps;
+
+    private final Set<SparkPathType> supportedPathTypes;
+    private final boolean hasBaseLine;
+    private final float baseLine;
+    private final float minX, minY, maxX, maxY;
+
+    private SparkSnapshot(SparkAdapter adapter, @Nullable int[] indices, int count) {
+        source = adapter;
+        sourceVersion = adapter.getDataVersion();
+        this.count = count;
+        xData = new float[count];
+        yData = new float[count];
+        if (indices == null) {
+            adapter.copyX(xData, 0, count);
+            adapter.copyY(yData, 0, count);
+            sourceIndices = null;
+        } else {
+            for (int i = 0; i < count; i++) {
+                xData[i] = adapter.getX(indices[i]);
+                yData[i] = adapter.getY(indices[i]);
+            }
+            sourceIndices = Arrays.copyOf(indices, count);
+        }
+
+        int[] runStarts = new int[1];
+        SparkPathType[] runPathTypes = new SparkPathType[1];
+        int runCount = 0;
+        int[] eventIndices = new int[0];
+        boolean[] eventSnaps = new boolean[0];
+        int eventCount = 0;
+        for (int i = 0; i < count; i++) {
+            final int index = indices == null ? i : indices[i];
+            final SparkPathType pathType = adapter.getPathType(index);
+            if (runCount == 0 || !pathType.equals(runPathTypes[runCount - 1])) {
+                if (runCount == runStarts.length) {
+                    runStarts = Arrays.copyOf(runStarts, runCount * 2);
+                    runPathTypes = Arrays.copyOf(runPathTypes, runCount * 2);
+                }
+                runStarts[runCount] = i;
+                runPathTypes[runCount] = pathType;
+                runCount++;
+            }
+
+            if (adapter.isEvent(index)) {
+                if (eventCount == eventIndices.length) {
+                    eventIndices = Arrays.copyOf(eventIndices, Math.max(4, eventCount * 2));
+                    eventSnaps = Arrays.copyOf(eventSnaps, eventIndices.length);
+                }
+                eventIndices[eventCount] = i;
+                eventSnaps[eventCount] = adapter.shouldSnapToEvent(index);
+                eventCount++;
+            }
+        }
+        this.runStarts = Arrays.copyOf(runStarts, runCount);
+        this.runPathTypes = Arrays.copyOf(runPathTypes, runCount);
+        this.eventIndices = Arrays.copyOf(eventIndices, eventCount);
+        this.eventSnaps = Arrays.copyOf(eventSnaps, eventCount);
+
+        supportedPathTypes = adapter.getSupportedPathTypes();
+        hasBaseLine = adapter.hasBaseLine();
+        baseLine = adapter.getBaseLine();
+        final RectF bounds = adapter.getDataBounds();
+        minX = bounds.left;
+        minY = bounds.top;
+        maxX = bounds.right;
+        maxY = bounds.bottom;
+    }
+
+    /**
+     * Copies the adapter's current data. Call it while holding the monitor of the adapter's
+     * {@link SparkAdapter#getLock()}.
+     */
+    @NonNull
+    static SparkSnapshot of(@NonNull SparkAdapter adapter) {
+        return new SparkSnapshot(adapter, null, adapter.getCount());
+    }
+
+    /**
+     * Copies only the adapter's points at the first {@code count} of the given ascending indices,
+     * such as the ones a {@link PyramidSparkAdapter} draws at one of its levels. The data bounds
+     * are still those of the whole adapter. Call it while holding the monitor of the adapter's
+     * {@link SparkAdapter#getLock()}.
+     */
+    @NonNull
+    static SparkSnapshot of(@NonNull SparkAdapter adapter, @NonNull int[] indices, int count) {
+        return new SparkSnapshot(adapter, indices, count);
+    }
+
+    /**
+     * @return the index in the adapter of the point at the given index of the snapshot
+     */
+    int getSourceIndex(int index) {
+        return sourceIndices == null ? index : sourceIndices[index];
+    }
+
+    @NonNull
+    @Override
+    SparkSnapshot snapshot() {
+        return this;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the adapter's item at the given index. Snapshots don't copy the items, so they are
+     * looked up in the adapter, as long as its data hasn't changed since the snapshot was taken.
+     * @throws ConcurrentModificationException if it has
+     */
+    @NonNull
+    @Override
+    public Object getItem(int index) {
+        checkIndex(index);
+        synchronized (source.getLock()) {
+            if (source.getDataVersion() != sourceVersion) {
+                throw new ConcurrentModificationException(
+                        "the adapter's data changed since the snapshot was taken");
+            }
+            return source.getItem(getSourceIndex(index));
+        }
+    }
+
+    @Override
+    public float getX(int index) {
+        checkIndex(index);
+        return xData[index];
+    }
+
+    @Override
+    public float getY(int index) {
+        checkIndex(index);
+        return yData[index];
+    }
+
+    @Override
+    public void copyX(@NonNull float[] dst, int from, int count) {
+        System.arraycopy(xData, from, dst, 0, count);
+    }
+
+    @Override
+    public void copyY(@NonNull float[] dst, int from, int count) {
+        System.arraycopy(yData, from, dst, 0, count);
+    }
+
+    @Override
+    public SparkPathType getPathType(int index) {
+        checkIndex(index);
+        // the last run starting at or before the index
+        int run = Arrays.binarySearch(runStarts, index);
+        if (run < 0) {
+            run = -run - 2;
+        }
+        return runPathTypes[run];
+    }
+
+    @Override
+    public Set<SparkPathType> getSupportedPathTypes() {
+        return supportedPathTypes;
+    }
+
+    @Override
+    public boolean isEvent(int index) {
+        return Arrays.binarySearch(eventIndices, index) >= 0;
+    }
+
+    @Override
+    public boolean shouldSnapToEvent(int index) {
+        final int event = Arrays.binarySearch(eventIndices, index);
+        return event >= 0 && eventSnaps[event];
+    }
+
+    @Override
+    public boolean hasBaseLine() {
+        return hasBaseLine;
+    }
+
+    @Override
+    public float getBaseLine() {
+        return baseLine;
+    }
+
+    /**
+     * @return the adapter's data bounds at the time of the snapshot, in a new RectF so that
+     * snapshots can be read from several threads at once
+     */
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        return createRectF(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @return the bounds of the points in [from, to) and the base line, in a new RectF
+     */
+    @NonNull
+    @Override
+    public RectF getDataBounds(int from, int to) {
+        float minX = Float.MAX_VALUE;
+        float minY = hasBaseLine ? baseLine : Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = hasBaseLine ? baseLine : -Float.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            minX = Math.min(minX, xData[i]);
+            maxX = Math.max(maxX, xData[i]);
+            minY = Math.min(minY, yData[i]);
+            maxY = Math.max(maxY, yData[i]);
+        }
+        return createRectF(minX, minY, maxX, maxY);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + count);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.robinhood.spark;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Renders graphs into bitmaps on background threads, for lists showing many small graphs, where a
+ * {@link SparkView} per row would build its paths on the main thread every time a row is bound.
+ * Rendered bitmaps are kept in a cache of bounded size, keyed by the adapter, the
+ * {@linkplain SparkAdapter#getDataVersion() version} of its data and the size they were rendered
+ * at, so rows scrolled back into view are shown straight from it. The cache holds on to the
+ * bitmaps only, not to the adapters or their data.
+ * <p>
+ * Every graph is drawn in its {@link GraphInteractionState#DEFAULT} paints, with the fill type,
+ * event dot radius and padding set here. Call everything on the main thread; adapters are copied
+ * on the render threads, under their {@linkplain SparkAdapter#getLock() lock}.
+ * @see SparkThumbnailView
+ */
+public class SparkThumbnailRenderer {
+    // shared by every renderer without an executor of its own, created the first time it is needed
+    private static Executor defaultExecutor;
+
+    private final Context context;
+    private final Executor executor;
+    // runs the results of renders on the main thread
+    private final Executor mainThreadExecutor;
+    // the rendered thumbnails, least recently used first, and the bytes they take up
+    private final LinkedHashMap<Key, Bitmap> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxCacheBytes;
+    private int cacheBytes;
+    // the callbacks waiting on each thumbnail being rendered, so each is only rendered once
+    private final Map<Key, List<Callback>> pending = new HashMap<>();
+    private final PixelColumnDownsampler downsampler = new PixelColumnDownsampler();
+
+    private @Nullable SparkPaintProvider paintProvider;
+    @SparkView.FillType private int fillType = SparkView.FillType.NONE;
+    private float eventDotRadius = 2.0f;
+    private int padding;
+    // incremented whenever the styling changes, so thumbnails rendered before aren't reused
+    private int styleGeneration;
+
+    /**
+     * @param maxCacheBytes the most memory the cached bitmaps may take up, in bytes
+     */
+    public SparkThumbnailRenderer(@NonNull Context context, int maxCacheBytes) {
+        this(context, maxCacheBytes, getDefaultExecutor());
+    }
+
+    /**
+     * @param maxCacheBytes the most memory the cached bitmaps may take up, in bytes
+     * @param executor the executor to render on
+     */
+    public SparkThumbnailRenderer(@NonNull Context context, int maxCacheBytes,
+            @NonNull Executor executor) {
+        this(context, maxCacheBytes, executor, new MainThreadExecutor());
+    }
+
+    /**
+     * Hook for unit tests, which have no main thread to post to
+     */
+    @VisibleForTesting
+    SparkThumbnailRenderer(@NonNull Context context, int maxCacheBytes,
+            @NonNull Executor executor, @NonNull Executor mainThreadExecutor) {
+        this.context = context.getApplicationContext();
+        this.maxCacheBytes = maxCacheBytes;
+        this.executor = executor;
+        this.mainThreadExecutor = mainThreadExecutor;
+    }
+
+    /**
+     * Receives a rendered thumbnail, on the main thread.
+     */
+    public interface Callback {
+        void onThumbnailRendered(@NonNull Bitmap thumbnail);
+    }
+
+    /**
+     * Sets the paints to draw with, or null to use each adapter's own
+     * {@link SparkAdapter#getPaintProvider()}. Clears the cache.
+     */
+    public void setPaintProvider(@Nullable SparkPaintProvider paintProvider) {
+        this.paintProvider = paintProvider;
+        onStyleChanged();
+    }
+
+    /**
+     * Sets how the graphs are filled, see {@link SparkView#setFillType(int)}. Clears the cache.
+     */
+    public void setFillType(@SparkView.FillType int fillType) {
+        this.fillType = fillType;
+        onStyleChanged();
+    }
+
+    /**
+     * Sets the radius of the dots drawn for events, in pixels. Clears the cache.
+     */
+    public void setEventDotRadius(float eventDotRadius) {
+        this.eventDotRadius = eventDotRadius;
+        onStyleChanged();
+    }
+
+    /**
+     * Sets the space left around each graph, in pixels, which should be at least half the line
+     * width for the line not to be cut off at the edges. Clears the cache.
+     */
+    public void setPadding(int padding) {
+        this.padding = padding;
+        onStyleChanged();
+    }
+
+    /**
+     * @return the thumbnail of the adapter's current data at the given size, if it is cached
+     */
+    @Nullable
+    public Bitmap getCachedThumbnail(@NonNull SparkAdapter adapter, int width, int height) {
+        return cache.get(
+                new Key(adapter, adapter.getDataVersion(), width, height, styleGeneration));
+    }
+
+    /**
+     * Renders the adapter's current data into a bitmap of the given size in the background, and
+     * passes it to {@code callback}. If the thumbnail is cached, {@code callback} gets it before
+     * this returns.
+     */
+    public void render(@NonNull final SparkAdapter adapter, final int width, final int height,
+            @NonNull Callback callback) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Can't render a " + width + "x" + height
+                    + " thumbnail");
+        }
+
+        final Key key =
+                new Key(adapter, adapter.getDataVersion(), width, height, styleGeneration);
+        final Bitmap cached = cache.get(key);
+        if (cached != null) {
+            callback.onThumbnailRendered(cached);
+            return;
+        }
+
+        // the same thumbnail is already on its way
+        List<Callback> callbacks = pending.get(key);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        pending.put(key, callbacks);
+
+        // paint providers are only ever asked on the main thread
+        final SparkPaintProvider paintProvider =
+                this.paintProvider != null ? this.paintProvider : adapter.getPaintProvider();
+        final Set<SparkPathType> supportedPathTypes = adapter.getSupportedPathTypes();
+        final SparkPathType[] pathTypes =
+                supportedPathTypes.toArray(new SparkPathType[supportedPathTypes.size()]);
+        final Paint[] linePaints = new Paint[pathTypes.length];
+        final Paint[] fillPaints = new Paint[pathTypes.length];
+        final Paint[] eventPaints = new Paint[pathTypes.length];
+        for (int i = 0; i < pathTypes.length; i++) {
+            linePaints[i] = paintProvider.getPathPaint(
+                    context, pathTypes[i], GraphInteractionState.DEFAULT);
+            fillPaints[i] = paintProvider.getPathFillPaint(
+                    context, pathTypes[i], GraphInteractionState.DEFAULT);
+            eventPaints[i] = paintProvider.getEventPaint(
+                    context, pathTypes[i], GraphInteractionState.DEFAULT);
+        }
+        final Paint baseLinePaint = paintProvider.getBaselinePaint(context);
+        final int padding = this.padding;
+        final int fillType = this.fillType;
+        final float eventDotRadius = this.eventDotRadius;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SparkGeometry geometry = new SparkGeometry();
+                geometry.contentRect.set(padding, padding, width - padding, height - padding);
+                geometry.width = width;
+                geometry.height = height;
+                geometry.paddingTop = padding;
+                geometry.paddingBottom = padding;
+                geometry.paddingStart = padding;
+                geometry.fillType = fillType;
+                geometry.eventDotRadius = eventDotRadius;
+                geometry.downsampler = downsampler;
+                geometry.pathTypes = pathTypes;
+
+                final SparkSnapshot snapshot;
+                final int dataVersion;
+                synchronized (adapter.getLock()) {
+                    dataVersion = adapter.getDataVersion();
+                    snapshot = geometry.snapshot(adapter);
+                }
+
+                final Bitmap thumbnail =
+                        Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                if (geometry.populate(snapshot)) {
+                    final Canvas canvas = new Canvas(thumbnail);
+                    canvas.drawPath(geometry.baseLinePath, baseLinePaint);
+                    canvas.clipRect(geometry.contentRect);
+                    SparkView.drawPaths(canvas, geometry.sparkPaths, pathTypes, 0, linePaints,
+                            geometry.fillType != SparkView.FillType.NONE ? fillPaints : null,
+                            geometry.fillEdge, geometry.paddingStart);
+                    SparkView.drawEvents(canvas, geometry, pathTypes, 0, eventPaints);
+                }
+
+                // data that changed after the request is passed on, but not cached as the data
+                // that was asked for
+                final boolean current = dataVersion == key.dataVersion;
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRendered(key, thumbnail, current);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops passing thumbnails to {@code callback}. Thumbnails already being rendered for it are
+     * still cached.
+     */
+    public void cancel(@NonNull Callback callback) {
+        for (List<Callback> callbacks : pending.values()) {
+            callbacks.remove(callback);
+        }
+    }
+
+    /**
+     * Drops every cached thumbnail.
+     */
+    public void clearCache() {
+        cache.clear();
+        cacheBytes = 0;
+    }
+
+    private void onRendered(Key key, Bitmap thumbnail, boolean current) {
+        // thumbnails rendered with an older style are handed out, but not kept
+        if (current && key.styleGeneration == styleGeneration) {
+            putCached(key, thumbnail);
+        }
+
+        final List<Callback> callbacks = pending.remove(key);
+        if (callbacks == null) return;
+        for (Callback callback : callbacks) {
+            callback.onThumbnailRendered(thumbnail);
+        }
+    }
+
+    /**
+     * Caches a thumbnail, dropping the ones of older data of the same adapter, which are never
+     * asked for again, and then the least recently used ones until the cache fits.
+     */
+    private void putCached(Key key, Bitmap thumbnail) {
+        final Iterator<Map.Entry<Key, Bitmap>> entries = cache.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<Key, Bitmap> entry = entries.next();
+            if (entry.getKey().isOutdatedBy(key)) {
+                cacheBytes -= entry.getValue().getByteCount();
+                entries.remove();
+            }
+        }
+
+        final Bitmap previous = cache.put(key, thumbnail);
+        if (previous != null) {
+            cacheBytes -= previous.getByteCount();
+        }
+        cacheBytes += thumbnail.getByteCount();
+
+        final Iterator<Bitmap> leastRecentlyUsed = cache.values().iterator();
+        while (cacheBytes > maxCacheBytes && leastRecentlyUsed.hasNext()) {
+            cacheBytes -= leastRecentlyUsed.next().getByteCount();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    private void onStyleChanged() {
+        styleGeneration++;
+        clearCache();
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            defaultExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "SparkThumbnailRenderer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Posts to the main thread.
+     */
+    private static final class MainThreadExecutor implements Executor {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable runnable) {
+            handler.post(runnable);
+        }
+    }
+
+    /**
+     * Identifies a thumbnail by the adapter it shows, the version of the adapter's data, its size
+     * and the styling it was drawn with. The adapter is only weakly held, so the cache doesn't keep
+     * adapters and their data alive; a key whose adapter is gone equals no other key.
+     */
+    static final class Key {
+        final WeakReference<SparkAdapter> adapter;
+        final int adapterHash;
+        final int dataVersion;
+        final int width, height;
+        final int styleGeneration;
+
+        Key(SparkAdapter adapter, int dataVersion, int width, int height, int styleGeneration) {
+            this.adapter = new WeakReference<>(adapter);
+            this.adapterHash = System.identityHashCode(adapter);
+            this.dataVersion = dataVersion;
+            this.width = width;
+            this.height = height;
+            this.styleGeneration = styleGeneration;
+        }
+
+        /**
+         * Returns true if this key's thumbnail can't be asked for once {@code key}'s has been
+         * rendered: its adapter is gone, or its data is older.
+         */
+        boolean isOutdatedBy(Key key) {
+            final SparkAdapter adapter = this.adapter.get();
+            return adapter == null
+                    || adapter == key.adapter.get() && dataVersion != key.dataVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+            final SparkAdapter adapter = this.adapter.get();
+            return adapter != null && adapter == that.adapter.get()
+                    && dataVersion == that.dataVersion && width == that.width
+                    && height == that.height && styleGeneration == that.styleGeneration;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = adapterHash;
+            result = 31 * result + dataVersion;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + styleGeneration;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.robinhood.spark;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.widget.ImageView;
+
+/**
+ * A lightweight view showing the thumbnail of a graph drawn by a {@link SparkThumbnailRenderer},
+ * for the rows of a list. Binding it shows the cached thumbnail at once if there is one, and
+ * otherwise shows nothing until the thumbnail is rendered in the background. The thumbnail is
+ * rendered again whenever the adapter notifies a change or the view is resized. The adapter is
+ * only observed while the view is attached to a window.
+ */
+public class SparkThumbnailView extends ImageView {
+    private @Nullable SparkThumbnailRenderer renderer;
+    private @Nullable SparkAdapter adapter;
+    // the adapter is only observed while the view is attached
+    private boolean attached;
+
+    public SparkThumbnailView(Context context) {
+        super(context);
+    }
+
+    public SparkThumbnailView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public SparkThumbnailView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * Shows the graph of the given adapter, drawn by the given renderer, or nothing if the adapter
+     * is null.
+     */
+    public void bind(@NonNull SparkThumbnailRenderer renderer, @Nullable SparkAdapter adapter) {
+        if (this.renderer != null) {
+            this.renderer.cancel(callback);
+        }
+        if (this.adapter != null && attached) {
+            this.adapter.unregisterDataSetObserver(dataSetObserver);
+        }
+
+        this.renderer = renderer;
+        this.adapter = adapter;
+        if (adapter != null && attached) {
+            adapter.registerDataSetObserver(dataSetObserver);
+        }
+
+        // don't leave the previous graph showing while this one renders
+        setImageDrawable(null);
+        requestThumbnail();
+    }
+
+    @Nullable
+    public SparkAdapter getAdapter() {
+        return adapter;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldW, int oldH) {
+        super.onSizeChanged(w, h, oldW, oldH);
+        requestThumbnail();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        attached = false;
+        if (adapter != null) {
+            adapter.unregisterDataSetObserver(dataSetObserver);
+        }
+        if (renderer != null) {
+            renderer.cancel(callback);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attached = true;
+        if (adapter != null) {
+            adapter.registerDataSetObserver(dataSetObserver);
+        }
+        // anything cancelled while detached is likely in the cache by now, unless the data changed
+        requestThumbnail();
+    }
+
+    /**
+     * Shows the cached thumbnail for the adapter's current data, or renders it. Whatever is
+     * showing stays until the new thumbnail arrives.
+     */
+    private void requestThumbnail() {
+        if (renderer == null) return;
+        renderer.cancel(callback);
+        if (adapter == null || getWidth() == 0 || getHeight() == 0) return;
+
+        renderer.render(adapter, getWidth(), getHeight(), callback);
+    }
+
+    private final SparkThumbnailRenderer.Callback callback =
+            new SparkThumbnailRenderer.Callback() {
+                @Override
+                public void onThumbnailRendered(@NonNull Bitmap thumbnail) {
+                    setImageBitmap(thumbnail);
+                }
+            };
+
+    private final SparkDataSetObserver dataSetObserver = new SparkDataSetObserver() {
+        @Override
+        public void onChanged() {
+            super.onChanged();
+            requestThumbnail();
+        }
+
+        @Override
+        public void onInvalidated() {
+            super.onInvalidated();
+            setImageDrawable(null);
+        }
+    };
+}
@@ -20,10 +20,11 @@ import android.animation.Animator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.database.DataSetObserver;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Picture;
 import android.graphics.RectF;
 import android.os.Build;
 import android.os.Handler;
@@ -31,20 +32,21 @@ import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
-import android.util.Pair;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.widget.OverScroller;
 import com.robinhood.spark.animation.SparkAnimator;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import static com.robinhood.spark.GraphInteractionState.DEFAULT;
 import static com.robinhood.spark.GraphInteractionState.SCRUBBED;
@@ -56,13 +58,21 @@ import static com.robinhood.spark.GraphInteractionState.UNSCRUBBED;
 public class SparkView extends View implements ScrubGestureDetector.ScrubListener {
 
     /**
-     * The distance from a graph event along the x axis within which we should consider
+     * The default distance from a graph event along the x axis within which we should consider
      * snapping to that event while scrubbing.
-     * @see #getEventToSnapTo(float)
+     * @see #setEventSnapDistance(float)
      */
     private static final float DEFAULT_EVENT_SNAP_DISTANCE = 20.0f;
+    // zooming stops once about this many points are visible
+    private static final int MIN_VISIBLE_POINTS = 4;
+    // unfilled segments with at least this many points are drawn as lines rather than as paths
+    static final int DRAW_LINES_MIN_POINT_COUNT = 256;
 
-    private @Nullable Float scrubLine;
+    // shared by every view with async populating, created the first time it is needed
+    private static Executor defaultPopulateExecutor;
+
+    // the x coordinate of the scrub line, or NaN when not scrubbing
+    private float scrubLine = Float.NaN;
 
     /**
      * Holds the fill type constants to be used with {@linkplain #getFillType()} and
@@ -102,31 +112,46 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     private float legacyLineWidth;
     @FillType private int fillType = FillType.NONE;
     private float eventDotRadius;
+    private float eventSnapDistance;
     private boolean scrubEnabled;
     private @Nullable SparkAnimator sparkAnimator;
 
     // the onDraw data
-    private SparkPaths sparkPaths = new SparkPaths();
-    private SparkPaths renderPaths = new SparkPaths();
-    private final Path baseLinePath = new Path();
+    private SparkGeometry geometry = new SparkGeometry();
+    private SparkPaths renderPaths = geometry.sparkPaths;
+    // the frames of an animation, see getSparkPaths()
+    private final SparkPaths animationPaths = new SparkPaths();
     private final Path scrubLinePath = new Path();
-    private final Path eventsPath = new Path();
+    // recordings of the graph drawn with the scrubbed and with the unscrubbed paints, replayed on
+    // either side of the scrub line so scrubbing doesn't draw every segment twice a frame
+    private final Picture scrubbedLayer = new Picture();
+    private final Picture unscrubbedLayer = new Picture();
+    private boolean scrubLayersValid;
 
     // adapter
     private @Nullable SparkAdapter adapter;
 
-    // misc fields
-    private ScaleHelper scaleHelper;
-
-    private Map<SparkPathType, Paint> defaultLinePaints = new HashMap<>();
-    private Map<SparkPathType, Paint> scrubbedLinePaints = new HashMap<>();
-    private Map<SparkPathType, Paint> unscrubbedLinePaints = new HashMap<>();
-    private Map<SparkPathType, Paint> defaultFillPaints = new HashMap<>();
-    private Map<SparkPathType, Paint> scrubbedFillPaints = new HashMap<>();
-    private Map<SparkPathType, Paint> unscrubbedFillPaints = new HashMap<>();
-    private Map<SparkPathType, Paint> defaultEventPaints = new HashMap<>();
-    private Map<SparkPathType, Paint> scrubbedEventPaints = new HashMap<>();
-    private Map<SparkPathType, Paint> unscrubbedEventPaints = new HashMap<>();
+    // background populating: the geometry built off the main thread, swapped with the one drawn
+    private @Nullable Executor populateExecutor;
+    private SparkGeometry spareGeometry = new SparkGeometry();
+    private @NonNull Handler handler;
+    // incremented by every populate, so results of older ones are dropped
+    private int populateGeneration;
+    private boolean populateInFlight;
+    private boolean populatePending;
+    // posted by the populate in flight once it's done, dropped if the view is detached meanwhile
+    private @Nullable Runnable populateFinished;
+    private boolean animateWhenPopulated;
+
+    // the adapter's supported path types, whose order gives each its column in the paint tables
+    private SparkPathType[] pathTypes = new SparkPathType[0];
+    // paints by interaction state and path type, at
+    // GraphInteractionState.ordinal() * pathTypes.length + the path type's index in pathTypes
+    private Paint[] linePaints = new Paint[0];
+    private Paint[] fillPaints = new Paint[0];
+    private Paint[] eventPaints = new Paint[0];
+    // the widest stroke of the line paints, which bleeds past where the graph changes paint
+    private float maxLineStrokeWidth;
 
     private Paint baseLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint scrubLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
@@ -136,9 +161,26 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     private @Nullable Animator pathAnimator;
     private final RectF contentRect = new RectF();
     private @Nullable RectF contentClip = null;
-
-    private List<Float> xPoints = new ArrayList<>();
-    private Map<Integer, Float> eventXPoints = new HashMap<>();
+    // our copy of the content clip, since animators may keep changing the one they pass us
+    private final RectF contentClipCopy = new RectF();
+
+    // the range of X values shown, or NaN to show every point
+    private float visibleMinX = Float.NaN;
+    private float visibleMaxX = Float.NaN;
+
+    private boolean zoomEnabled;
+    private @NonNull ZoomPanGestureDetector zoomPanGestureDetector;
+    private @NonNull OverScroller scroller;
+    // while zooming or panning, the paths are transformed to the X range being shown instead of
+    // being rebuilt for it
+    private boolean gestureActive;
+    private boolean flinging;
+    private float gestureMinX, gestureMaxX;
+    private float gestureDataMinX, gestureDataMaxX, gestureMinSpan;
+    private float flingPixelsPerUnit;
+    private final Matrix gestureMatrix = new Matrix();
+
+    private @Nullable SparkDownsampler downsampler;
 
     /**
      * The last index that the {@link #scrubListener} was notified of us scrubbing to.
@@ -174,13 +216,25 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
 
         scrubEnabled = a.getBoolean(R.styleable.SparkView_spark_scrubEnabled, true);
         eventDotRadius = a.getDimension(R.styleable.SparkView_spark_eventDotRadius, 2.0f);
+        eventSnapDistance = a.getDimension(R.styleable.SparkView_spark_eventSnapDistance,
+                DEFAULT_EVENT_SNAP_DISTANCE);
+        if (a.getBoolean(R.styleable.SparkView_spark_decimationEnabled, false)) {
+            downsampler = new PixelColumnDownsampler();
+        }
+        zoomEnabled = a.getBoolean(R.styleable.SparkView_spark_zoomEnabled, false);
+        if (a.getBoolean(R.styleable.SparkView_spark_asyncPopulate, false)) {
+            populateExecutor = getDefaultPopulateExecutor();
+        }
         a.recycle();
 
-        final Handler handler = new Handler();
+        handler = new Handler();
         final float touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
         scrubGestureDetector = new ScrubGestureDetector(this, handler, touchSlop);
         scrubGestureDetector.setEnabled(scrubEnabled);
-        setOnTouchListener(scrubGestureDetector);
+        zoomPanGestureDetector = new ZoomPanGestureDetector(context, zoomPanListener);
+        zoomPanGestureDetector.setEnabled(zoomEnabled);
+        scroller = new OverScroller(context);
+        setOnTouchListener(touchListener);
 
         if (isInEditMode()) {
             this.setAdapter(new SparkAdapter() {
@@ -202,6 +256,31 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // catch up on a populate dropped while detached
+        if (populatePending && !populateInFlight) {
+            populatePending = false;
+            populatePath();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (populateInFlight) {
+            // don't keep the view around for a populate nobody will see; the geometry it builds
+            // into is left to it, and the view populates again once reattached
+            handler.removeCallbacks(populateFinished);
+            populateFinished = null;
+            populateInFlight = false;
+            populatePending = true;
+            populateGeneration++;
+            spareGeometry = new SparkGeometry();
+        }
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldW, int oldH) {
         super.onSizeChanged(w, h, oldW, oldH);
@@ -210,112 +289,237 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     }
 
     /**
-     * Populates the {@linkplain #sparkPaths} with points
+     * Populates the {@linkplain #geometry} with points from the adapter, in the background if there
+     * is a {@linkplain #populateExecutor}.
      */
     private void populatePath() {
         if (adapter == null) return;
         if (getWidth() == 0 || getHeight() == 0) return;
 
-        final int adapterCount = adapter.getCount();
+        if (populateExecutor != null && !isInEditMode()) {
+            populatePathAsync();
+            return;
+        }
 
-        // to draw anything, we need 2 or more points
-        if (adapterCount < 2) {
+        // any populate still running in the background is out of date now
+        populateGeneration++;
+        configureGeometry(geometry);
+        // copying the points is the only part that holds up writers to the adapter, as in the
+        // background
+        final SparkSnapshot snapshot;
+        synchronized (adapter.getLock()) {
+            geometry.dataVersion = adapter.getDataVersion();
+            snapshot = geometry.snapshot(adapter);
+        }
+        if (geometry.populate(snapshot)) {
+            onPathsPopulated();
+        } else {
             clearData();
+        }
+    }
+
+    /**
+     * Builds the {@linkplain #spareGeometry} from a snapshot of the adapter taken on the
+     * {@linkplain #populateExecutor}, then swaps it with the {@linkplain #geometry} being drawn.
+     * Only one populate runs at a time: requests made meanwhile are folded into a single populate
+     * of the latest data once it finishes, and its now stale result is dropped.
+     */
+    private void populatePathAsync() {
+        final int generation = ++populateGeneration;
+        if (populateInFlight) {
+            populatePending = true;
             return;
         }
 
-        scaleHelper = new ScaleHelper(adapter, contentRect, legacyLineWidth, fillType != FillType.NONE);
+        final SparkAdapter adapter = this.adapter;
+        final SparkGeometry spare = spareGeometry;
+        configureGeometry(spare);
+        final boolean[] populated = new boolean[1];
+        final Runnable finished = new Runnable() {
+            @Override
+            public void run() {
+                if (populateFinished == this) {
+                    onAsyncPopulateFinished(spare, populated[0], generation);
+                }
+            }
+        };
+        populateFinished = finished;
+        populateInFlight = true;
+        populateExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // copying the points is the only part that holds up writers to the adapter
+                final SparkSnapshot snapshot;
+                synchronized (adapter.getLock()) {
+                    spare.dataVersion = adapter.getDataVersion();
+                    snapshot = spare.snapshot(adapter);
+                }
+                populated[0] = spare.populate(snapshot);
+                handler.post(finished);
+            }
+        });
+    }
 
-        // Reset points caches
-        xPoints.clear();
-        eventXPoints.clear();
+    private void onAsyncPopulateFinished(SparkGeometry built, boolean populated, int generation) {
+        populateFinished = null;
+        populateInFlight = false;
+        if (generation == populateGeneration) {
+            // draw the new geometry, and build into the old one next time
+            spareGeometry = geometry;
+            geometry = built;
+            if (populated) {
+                onPathsPopulated();
+            } else {
+                clearData();
+            }
+        }
 
-        // Reset all of our paths.
-        eventsPath.reset();
-        sparkPaths.reset();
+        if (populatePending) {
+            populatePending = false;
+            populatePath();
+        }
+    }
 
-        SparkPathType currentPathType = null;
+    /**
+     * Copies the view's layout and options into a geometry, ready to be populated.
+     */
+    private void configureGeometry(SparkGeometry geometry) {
+        geometry.contentRect.set(contentRect);
+        geometry.width = getWidth();
+        geometry.height = getHeight();
+        geometry.paddingTop = getPaddingTop();
+        geometry.paddingBottom = getPaddingBottom();
+        geometry.paddingStart = getPaddingStart();
+        geometry.lineWidth = legacyLineWidth;
+        geometry.fillType = fillType;
+        geometry.eventDotRadius = eventDotRadius;
+        geometry.downsampler = downsampler;
+        geometry.visibleMinX = visibleMinX;
+        geometry.visibleMaxX = visibleMaxX;
+        geometry.pathTypes = pathTypes;
+    }
 
-        for (int i = 0; i < adapterCount; i++) {
-            final float x = scaleHelper.getX(adapter.getX(i));
-            final float y = scaleHelper.getY(adapter.getY(i));
+    /**
+     * Shows the freshly populated {@linkplain #geometry}.
+     */
+    private void onPathsPopulated() {
+        // render straight from the geometry until an animation hands us its own frames, so
+        // appended points show up without copying the whole graph
+        renderPaths = geometry.sparkPaths;
 
-            xPoints.add(x);
+        contentClip = null;
 
-            final SparkPathType pathType = adapter.getPathType(i);
+        if (gestureActive) {
+            updateGestureMatrix();
+        }
 
-            if (currentPathType == null) {
-                sparkPaths.startPathSegment(pathType, x, y);
-                currentPathType = pathType;
-            }
+        if (sparkAnimator != null) {
+            sparkAnimator.onNewPathsPopulated(this);
+        }
 
-            if (!pathType.equals(currentPathType)) {
-                // We're starting a new path, so the current one ends here.
-                sparkPaths.endPathSegment(currentPathType, getFillEdge(), getPaddingStart());
+        if (animateWhenPopulated) {
+            animateWhenPopulated = false;
+            doPathAnimation();
+        }
 
-                // Start a new path.
-                sparkPaths.startPathSegment(pathType, x, y);
-                currentPathType = pathType;
-            } else {
-                sparkPaths.addToPathSegment(pathType, x, y);
-            }
+        invalidateGraph();
+    }
 
-            // If this is a special event, it needs some extra processing.
-            if (adapter.isEvent(i)) {
-                Path dot = new Path();
-                dot.moveTo(x, y);
-                dot.addCircle(x, y, eventDotRadius, Path.Direction.CW);
-                dot.close();
-                eventsPath.addPath(dot);
-                eventXPoints.put(i, x);
+    /**
+     * Returns the first of the adapter's {@code count} points whose X value is at least
+     * {@code x}, or greater than {@code x} if {@code strict}, by binary search over the ascending
+     * X values. Returns {@code count} if there is none.
+     */
+    static int findFirstIndex(SparkAdapter adapter, int count, float x, boolean strict) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final float midX = adapter.getX(mid);
+            if (midX < x || (strict && midX == x)) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
+        return low;
+    }
 
-        // Add the last path to the list of paths.
-        sparkPaths.endPathSegment(currentPathType, getFillEdge(), getPaddingStart());
-
-        // make our base line path
-        baseLinePath.reset();
-        if (adapter.hasBaseLine()) {
-            float scaledBaseLine = scaleHelper.getY(adapter.getBaseLine());
-            baseLinePath.moveTo(0, scaledBaseLine);
-            baseLinePath.lineTo(getWidth(), scaledBaseLine);
+    /**
+     * Merges two ascending index arrays into {@code out}, dropping duplicates.
+     * @return the number of indices written
+     */
+    static int mergeSortedIndices(int[] a, int aCount, int[] b, int bCount, int[] out) {
+        int i = 0, j = 0, outCount = 0;
+        while (i < aCount || j < bCount) {
+            final int next;
+            if (j == bCount || (i < aCount && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i == aCount || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            out[outCount++] = next;
         }
+        return outCount;
+    }
 
-        renderPaths.reset();
-        renderPaths = new SparkPaths(sparkPaths);
-
-        contentClip = null;
+    /**
+     * Returns true if the paths can be updated in place for a change in the adapter's data,
+     * rather than being rebuilt by {@link #populatePath()}.
+     */
+    private boolean canUpdatePathInPlace() {
+        // animations render their own copies, and a gesture or a background populate will replace
+        // the paths anyway
+        return adapter != null && sparkAnimator == null && renderPaths == geometry.sparkPaths
+                && !gestureActive && !populateInFlight;
+    }
 
-        if (sparkAnimator != null) {
-            sparkAnimator.onNewPathsPopulated(this);
+    /**
+     * Extends the paths with the {@code count} points appended to the end of the adapter.
+     */
+    private void appendPath(int count) {
+        if (canUpdatePathInPlace()) {
+            synchronized (adapter.getLock()) {
+                if (geometry.append(adapter, count)) {
+                    geometry.dataVersion = adapter.getDataVersion();
+                    invalidateGraph();
+                    return;
+                }
+            }
         }
 
-        invalidate();
+        populatePath();
     }
 
-    @Nullable
-    private Float getFillEdge() {
-        switch (fillType) {
-            case FillType.NONE:
-                return null;
-            case FillType.UP:
-                return (float) getPaddingTop();
-            case FillType.DOWN:
-                return (float) getHeight() - getPaddingBottom();
-            case FillType.TOWARD_ZERO:
-                float zero = scaleHelper.getY(0F);
-                float bottom = (float) getHeight() - getPaddingBottom();
-                return Math.min(zero, bottom);
-            default:
-                throw new IllegalStateException(
-                        String.format(Locale.US, "Unknown fill-type: %d", fillType)
-                );
+    /**
+     * Updates the paths for the {@code count} points starting at {@code start}, which changed in
+     * place.
+     */
+    private void updatePathRange(int start, int count) {
+        if (canUpdatePathInPlace()) {
+            synchronized (adapter.getLock()) {
+                if (geometry.updateRange(adapter, start, count)) {
+                    geometry.dataVersion = adapter.getDataVersion();
+                    invalidateGraph();
+                    return;
+                }
+            }
         }
+
+        populatePath();
     }
 
+    /**
+     * Returns a copy of the graph's paths for a {@link SparkAnimator} to change and pass back to
+     * {@link #setAnimationPath(SparkPaths)}. The copy is reused: every call overwrites the one
+     * returned before, recycling its paths rather than allocating new ones.
+     */
     public SparkPaths getSparkPaths() {
-        return new SparkPaths(sparkPaths);
+        animationPaths.set(geometry.sparkPaths);
+        return animationPaths;
     }
 
     public RectF getContentRect() {
@@ -326,28 +530,73 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
      * Set the path to animate in onDraw, used for getAnimation purposes
      */
     public void setAnimationPath(SparkPaths animationPath) {
-        renderPaths.reset();
-        renderPaths = new SparkPaths(animationPath);
-        invalidate();
+        // the paths from getSparkPaths() are drawn as they are, anything else is copied
+        if (animationPath != animationPaths) {
+            animationPaths.set(animationPath);
+        }
+        renderPaths = animationPaths;
+        invalidateGraph();
     }
 
     public void setContentClip(@Nullable RectF newContentClip) {
-        this.contentClip = newContentClip;
-        invalidate();
+        final RectF oldClip = contentClip != null ? contentClip : contentRect;
+        final RectF newClip = newContentClip != null ? newContentClip : contentRect;
+        if (oldClip.left == newClip.left && oldClip.top == newClip.top
+                && oldClip.bottom == newClip.bottom && !gestureActive) {
+            // a clip growing or shrinking to the right, as when revealing the line, only changes
+            // what is between its old and new right edges
+            invalidateColumns(Math.min(oldClip.right, newClip.right),
+                    Math.max(oldClip.right, newClip.right), 1);
+        } else {
+            invalidate();
+        }
+
+        if (newContentClip != null) {
+            contentClipCopy.set(newContentClip);
+            contentClip = contentClipCopy;
+        } else {
+            contentClip = null;
+        }
     }
 
-    private void setScrubLine(@Nullable Float scrubLineX) {
+    /**
+     * Moves the scrub line to the given x coordinate, or removes it if NaN.
+     */
+    private void setScrubLine(float scrubLineX) {
+        final float oldScrubLine = scrubLine;
         scrubLinePath.reset();
 
-        if (scrubLineX == null) {
-            scrubLine = null;
+        if (Float.isNaN(scrubLineX)) {
+            scrubLine = Float.NaN;
         } else {
             scrubLine = resolveBoundedScrubLine(scrubLineX);
             scrubLinePath.moveTo(scrubLine, getPaddingTop());
             scrubLinePath.lineTo(scrubLine, getHeight() - getPaddingBottom());
         }
 
-        invalidate();
+        if (Float.isNaN(oldScrubLine) || Float.isNaN(scrubLine) || gestureActive) {
+            // starting or ending a scrub changes the paints of the whole graph, and a gesture's
+            // matrix moves where the graph changes paint
+            invalidate();
+        } else {
+            // moving the scrub line only changes the graph between its old and new positions,
+            // out to the gap around it and to whichever stroke bleeds furthest past it
+            final float outset =
+                    1 + Math.max(scrubLinePaint.getStrokeWidth(), maxLineStrokeWidth) / 2;
+            invalidateColumns(Math.min(oldScrubLine, scrubLine),
+                    Math.max(oldScrubLine, scrubLine), outset);
+        }
+    }
+
+    /**
+     * Invalidates the full height of the view between the given x coordinates, widened by
+     * {@code outset} on either side and by a pixel for antialiasing. Use this for anything drawn
+     * over the graph at an x coordinate, like the scrub line, rather than invalidating the whole
+     * view every time it moves.
+     */
+    private void invalidateColumns(float left, float right, float outset) {
+        invalidate((int) Math.floor(left - outset) - 1, 0,
+                (int) Math.ceil(right + outset) + 1, getHeight());
     }
 
     /**
@@ -369,6 +618,20 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         return x;
     }
 
+    @Override
+    public void computeScroll() {
+        super.computeScroll();
+        if (!flinging || geometry.scaleHelper == null) return;
+
+        if (scroller.computeScrollOffset()) {
+            final float span = gestureMaxX - gestureMinX;
+            moveGestureRange(gestureDataMinX + scroller.getCurrX() / flingPixelsPerUnit, span);
+            postInvalidateOnAnimationCompat();
+        } else {
+            settleGesture();
+        }
+    }
+
     @Override
     public void setPadding(int left, int top, int right, int bottom) {
         super.setPadding(left, top, right, bottom);
@@ -379,7 +642,7 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         canvas.save();
-        canvas.drawPath(baseLinePath, baseLinePaint);
+        canvas.drawPath(geometry.baseLinePath, baseLinePaint);
         canvas.restore();
 
         RectF clip = contentClip;
@@ -391,57 +654,289 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         canvas.drawPath(scrubLinePath, scrubLinePaint);
 
         canvas.clipRect(clip);
+        if (gestureActive) {
+            canvas.concat(gestureMatrix);
+        }
 
-        for (SparkPathType pathType : renderPaths.paths.keySet()) {
-            SparkPath sparkPath = renderPaths.paths.get(pathType);
-            for (SparkPath.SparkPathSegment segment : sparkPath.segments) {
-
-                if (scrubLine != null) {
-                    // Draw and clip the scrubbed path
-                    canvas.save();
-                    canvas.clipRect(
-                        contentRect.left,
-                        contentRect.top,
-                        scrubLine - 1,
-                        contentRect.bottom);
-                    canvas.drawPath(segment, scrubbedLinePaints.get(pathType));
-                    if (fillType != FillType.NONE) {
-                        canvas.drawPath(segment, scrubbedFillPaints.get(pathType));
-                    }
-
-                    // Draw events in the same clipping area.
-                    canvas.drawPath(eventsPath, scrubbedEventPaints.get(pathType));
-
-                    canvas.restore();
-
-                    // Draw and clip the unscrubbed path
-                    canvas.save();
-                    canvas.clipRect(
-                        scrubLine + 1,
-                        contentRect.top,
-                        contentRect.right,
-                        contentRect.bottom);
-                    canvas.drawPath(segment, unscrubbedLinePaints.get(pathType));
-                    if (fillType != FillType.NONE) {
-                        canvas.drawPath(segment, unscrubbedFillPaints.get(pathType));
-                    }
-
-                    // Draw events in the same clipping area.
-                    canvas.drawPath(eventsPath, unscrubbedEventPaints.get(pathType));
-
-                    canvas.restore();
-                } else {
-                    canvas.drawPath(segment, defaultLinePaints.get(pathType));
-                    if (fillType != FillType.NONE) {
-                        canvas.drawPath(segment, defaultFillPaints.get(pathType));
-                    }
+        if (!Float.isNaN(scrubLine) && canSplitAtScrub()) {
+            drawGraphSplitAtScrub(canvas);
+        } else if (!Float.isNaN(scrubLine)) {
+            final boolean useLayers = canUseScrubLayers();
+            if (useLayers) {
+                updateScrubLayers();
+            }
+
+            // Draw and clip the scrubbed part of the graph
+            canvas.save();
+            clipToScrubbedSide(canvas);
+            if (useLayers) {
+                canvas.drawPicture(scrubbedLayer);
+            } else {
+                drawGraph(canvas, SCRUBBED);
+            }
+            canvas.restore();
+
+            // Draw and clip the unscrubbed part of the graph
+            canvas.save();
+            clipToUnscrubbedSide(canvas);
+            if (useLayers) {
+                canvas.drawPicture(unscrubbedLayer);
+            } else {
+                drawGraph(canvas, UNSCRUBBED);
+            }
+            canvas.restore();
+        } else {
+            drawGraph(canvas, DEFAULT);
+        }
+    }
+
+    private void clipToScrubbedSide(Canvas canvas) {
+        canvas.clipRect(
+            contentRect.left,
+            contentRect.top,
+            scrubLine - 1,
+            contentRect.bottom);
+    }
+
+    private void clipToUnscrubbedSide(Canvas canvas) {
+        canvas.clipRect(
+            scrubLine + 1,
+            contentRect.top,
+            contentRect.right,
+            contentRect.bottom);
+    }
+
+    /**
+     * @return true if the graph can be drawn cut at the scrub line: it has no fill to cut, and the
+     * scrub line is in the same coordinates as its points, which a gesture's matrix would change
+     */
+    private boolean canSplitAtScrub() {
+        return fillType == FillType.NONE && !gestureActive;
+    }
+
+    /**
+     * Draws the graph while scrubbing by cutting each long line where it crosses the scrub line,
+     * so each half is drawn once with its own paint instead of the whole line being drawn twice
+     * under a clip for each side. Short segments, which aren't drawn as lines, and the event dots
+     * are still drawn clipped to each side.
+     */
+    private void drawGraphSplitAtScrub(Canvas canvas) {
+        final int scrubbedRow = SCRUBBED.ordinal() * pathTypes.length;
+        final int unscrubbedRow = UNSCRUBBED.ordinal() * pathTypes.length;
+        for (int i = 0, pathCount = renderPaths.getPathCount(); i < pathCount; i++) {
+            final SparkPath sparkPath = renderPaths.getPath(i);
+            // paths are kept when emptied, including those of a previous adapter's path types
+            if (sparkPath.segments.isEmpty()) continue;
+            final int ordinal = sparkPath.ordinalIn(pathTypes);
+            if (ordinal < 0) continue;
+            final Paint scrubbedPaint = linePaints[scrubbedRow + ordinal];
+            final Paint unscrubbedPaint = linePaints[unscrubbedRow + ordinal];
+            final boolean canDrawLines =
+                    canDrawLines(scrubbedPaint) && canDrawLines(unscrubbedPaint);
+            final List<SparkPath.SparkPathSegment> segments = sparkPath.segments;
+            for (int j = 0, segmentCount = segments.size(); j < segmentCount; j++) {
+                final SparkPath.SparkPathSegment segment = segments.get(j);
+                if (canDrawLines && segment.getPointCount() >= DRAW_LINES_MIN_POINT_COUNT) {
+                    // end the lines' round caps where the clips would have cut them
+                    final int lineFloatCount = segment.updateLines();
+                    drawLinesSplit(canvas, segment.lines, lineFloatCount,
+                            scrubLine - 1 - scrubbedPaint.getStrokeWidth() / 2, scrubbedPaint,
+                            scrubLine + 1 + unscrubbedPaint.getStrokeWidth() / 2,
+                            unscrubbedPaint);
+                    continue;
+                }
+
+                canvas.save();
+                clipToScrubbedSide(canvas);
+                canvas.drawPath(segment, scrubbedPaint);
+                canvas.restore();
+                canvas.save();
+                clipToUnscrubbedSide(canvas);
+                canvas.drawPath(segment, unscrubbedPaint);
+                canvas.restore();
+            }
+        }
+
+        canvas.save();
+        clipToScrubbedSide(canvas);
+        drawEvents(canvas, geometry, pathTypes, scrubbedRow, eventPaints);
+        canvas.restore();
+        canvas.save();
+        clipToUnscrubbedSide(canvas);
+        drawEvents(canvas, geometry, pathTypes, unscrubbedRow, eventPaints);
+        canvas.restore();
+    }
+
+    /**
+     * Draws the parts of the given lines, as taken by
+     * {@link Canvas#drawLines(float[], int, int, Paint)}, left of {@code leftMaxX} with
+     * {@code leftPaint} and right of {@code rightMinX} with {@code rightPaint}. The lines crossing
+     * either x are cut where they cross it; the lines must run in ascending x order.
+     */
+    static void drawLinesSplit(Canvas canvas, float[] lines, int floatCount,
+            float leftMaxX, Paint leftPaint, float rightMinX, Paint rightPaint) {
+        final int lineCount = floatCount / 4;
+
+        // the lines ending left of leftMaxX are drawn whole, and the next one up to it
+        final int left = countLinesBefore(lines, lineCount, 2, leftMaxX);
+        canvas.drawLines(lines, 0, left * 4, leftPaint);
+        if (left < lineCount && lines[left * 4] < leftMaxX) {
+            drawLinePart(canvas, lines, left, lines[left * 4], leftMaxX, leftPaint);
+        }
+
+        // the lines starting at or right of rightMinX are drawn whole, and the one before from it
+        final int right = countLinesBefore(lines, lineCount, 0, rightMinX);
+        canvas.drawLines(lines, right * 4, floatCount - right * 4, rightPaint);
+        if (right > 0 && lines[(right - 1) * 4 + 2] > rightMinX) {
+            drawLinePart(canvas, lines, right - 1, rightMinX, lines[(right - 1) * 4 + 2],
+                    rightPaint);
+        }
+    }
+
+    /**
+     * @return the number of leading lines whose start ({@code offset} 0) or end ({@code offset} 2)
+     * is left of {@code x}, by binary search
+     */
+    private static int countLinesBefore(float[] lines, int lineCount, int offset, float x) {
+        int low = 0;
+        int high = lineCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (lines[mid * 4 + offset] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Draws the given line between {@code fromX} and {@code toX}, which lie within it.
+     */
+    private static void drawLinePart(Canvas canvas, float[] lines, int line, float fromX,
+            float toX, Paint paint) {
+        final int i = line * 4;
+        final float x0 = lines[i];
+        final float y0 = lines[i + 1];
+        final float slope = (lines[i + 3] - y0) / (lines[i + 2] - x0);
+        canvas.drawLine(fromX, y0 + (fromX - x0) * slope, toX, y0 + (toX - x0) * slope, paint);
+    }
+
+    /**
+     * Redraws the view after the graph itself changed, so the scrub layers are recorded again.
+     */
+    private void invalidateGraph() {
+        scrubLayersValid = false;
+        invalidate();
+    }
+
+    /**
+     * @return true if scrubbing can replay the recorded scrub layers: hardware accelerated
+     * canvases only draw pictures from Marshmallow on, so older versions draw the graph directly
+     */
+    private static boolean canUseScrubLayers() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+    }
+
+    /**
+     * Records the graph with the scrubbed and with the unscrubbed paints, if it has changed since
+     * they were last recorded. The gesture matrix and clips are applied around the recordings, so
+     * panning and moving the scrub line replay them as they are.
+     */
+    private void updateScrubLayers() {
+        if (scrubLayersValid) return;
+
+        drawGraph(scrubbedLayer.beginRecording(getWidth(), getHeight()), SCRUBBED);
+        scrubbedLayer.endRecording();
+        drawGraph(unscrubbedLayer.beginRecording(getWidth(), getHeight()), UNSCRUBBED);
+        unscrubbedLayer.endRecording();
+        scrubLayersValid = true;
+    }
+
+    /**
+     * Draws every segment, then the event dots on top of them, each once with the paints of its
+     * path type for one interaction state.
+     */
+    private void drawGraph(Canvas canvas, GraphInteractionState state) {
+        final int row = state.ordinal() * pathTypes.length;
+        drawPaths(canvas, renderPaths, pathTypes, row, linePaints,
+                fillType != FillType.NONE ? fillPaints : null, geometry.fillEdge,
+                geometry.paddingStart);
+        drawEvents(canvas, geometry, pathTypes, row, eventPaints);
+    }
 
-                    canvas.drawPath(eventsPath, defaultEventPaints.get(pathType));
+    /**
+     * Draws every segment of the given paths with the paints in the given row of the paint
+     * tables, and fills them too, up or down to {@code fillEdge}, if there are fill paints. Long
+     * lines are drawn with {@link Canvas#drawLines(float[], int, int, Paint)} when that looks the
+     * same, since hardware
+     * accelerated canvases rasterize a large path into a texture, slowly and at a cost in memory,
+     * while lines are drawn straight from their vertices. Runs every frame, so it must not
+     * allocate.
+     */
+    static void drawPaths(Canvas canvas, SparkPaths paths, SparkPathType[] pathTypes, int row,
+            Paint[] linePaints, @Nullable Paint[] fillPaints, float fillEdge,
+            int fillStartPadding) {
+        // walk everything by index: iterators would be garbage on every frame
+        for (int i = 0, pathCount = paths.getPathCount(); i < pathCount; i++) {
+            final SparkPath sparkPath = paths.getPath(i);
+            // paths are kept when emptied, including those of a previous adapter's path types, and
+            // paths built for the previous styling may be drawn until they're built again
+            if (sparkPath.segments.isEmpty()) continue;
+            final int ordinal = sparkPath.ordinalIn(pathTypes);
+            if (ordinal < 0) continue;
+            final int paint = row + ordinal;
+            final List<SparkPath.SparkPathSegment> segments = sparkPath.segments;
+            for (int j = 0, segmentCount = segments.size(); j < segmentCount; j++) {
+                final SparkPath.SparkPathSegment segment = segments.get(j);
+                if (segment.getPointCount() >= DRAW_LINES_MIN_POINT_COUNT
+                        && canDrawLines(linePaints[paint])) {
+                    // update first: it may replace the buffer
+                    final int lineFloatCount = segment.updateLines();
+                    canvas.drawLines(segment.lines, 0, lineFloatCount, linePaints[paint]);
+                } else {
+                    canvas.drawPath(segment, linePaints[paint]);
+                }
+                if (fillPaints != null && segment.getPointCount() > 0) {
+                    canvas.drawPath(segment.getFillPath(fillEdge, fillStartPadding),
+                            fillPaints[paint]);
                 }
             }
         }
     }
 
+    /**
+     * @return true if a line drawn with the given paint looks the same as separate lines between
+     * its points: the lines' round caps stand in for the path's joins, and must not show where
+     * they overlap, and a path effect like a dash would start over with each line
+     */
+    private static boolean canDrawLines(Paint paint) {
+        return paint.getPathEffect() == null
+                && paint.getStrokeCap() == Paint.Cap.ROUND
+                && paint.getAlpha() == 255
+                && paint.getXfermode() == null;
+    }
+
+    /**
+     * Draws the geometry's event dots with the paints in the given row of the event paint table.
+     * Runs every frame, so it must not allocate.
+     */
+    static void drawEvents(Canvas canvas, SparkGeometry geometry, SparkPathType[] pathTypes,
+            int row, Paint[] eventPaints) {
+        // the geometry's event paths are indexed like our path types, unless the styling changed
+        // since it was built, in which case events of path types no longer supported are skipped
+        final Path[] eventPaths = geometry.eventPaths;
+        final SparkPathType[] eventPathTypes = geometry.pathTypes;
+        for (int i = 0; i < eventPaths.length; i++) {
+            if (eventPaths[i] == null) continue;
+            final int ordinal = eventPathTypes == pathTypes
+                    ? i : SparkPath.findIndex(pathTypes, eventPathTypes[i]);
+            if (ordinal < 0) continue;
+            canvas.drawPath(eventPaths[i], eventPaints[row + ordinal]);
+        }
+    }
+
     public void updateStyling() {
 
         if (adapter == null) {
@@ -449,35 +944,40 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
             return;
         }
 
-        // Clear existing paints
-        unscrubbedLinePaints.clear();
-        defaultLinePaints.clear();
-        scrubbedLinePaints.clear();
-        defaultEventPaints.clear();
-        scrubbedEventPaints.clear();
-        unscrubbedEventPaints.clear();
-        defaultFillPaints.clear();
-        scrubbedFillPaints.clear();
-        unscrubbedFillPaints.clear();
-
         final SparkPaintProvider paintProvider = adapter.getPaintProvider();
 
-        for (SparkPathType pathType : adapter.getSupportedPathTypes()) {
-            defaultLinePaints.put(pathType, paintProvider.getPathPaint(getContext(), pathType, DEFAULT));
-            scrubbedLinePaints.put(pathType, paintProvider.getPathPaint(getContext(), pathType, SCRUBBED));
-            unscrubbedLinePaints.put(pathType, paintProvider.getPathPaint(getContext(), pathType, UNSCRUBBED));
-            defaultEventPaints.put(pathType, paintProvider.getEventPaint(getContext(), pathType, DEFAULT));
-            scrubbedEventPaints.put(pathType, paintProvider.getEventPaint(getContext(), pathType, SCRUBBED));
-            unscrubbedEventPaints.put(pathType, paintProvider.getEventPaint(getContext(), pathType, UNSCRUBBED));
-            defaultFillPaints.put(pathType, paintProvider.getPathFillPaint(getContext(), pathType, DEFAULT));
-            scrubbedFillPaints.put(pathType, paintProvider.getPathFillPaint(getContext(), pathType, SCRUBBED));
-            unscrubbedFillPaints.put(pathType, paintProvider.getPathFillPaint(getContext(), pathType, UNSCRUBBED));
+        // keep the same array while the path types are unchanged, so the ordinals looked up in it
+        // stay valid
+        final Set<SparkPathType> supportedPathTypes = adapter.getSupportedPathTypes();
+        final SparkPathType[] newPathTypes =
+                supportedPathTypes.toArray(new SparkPathType[supportedPathTypes.size()]);
+        if (!Arrays.equals(pathTypes, newPathTypes)) {
+            pathTypes = newPathTypes;
+        }
+
+        final GraphInteractionState[] states = GraphInteractionState.values();
+        final int pathTypeCount = pathTypes.length;
+        linePaints = new Paint[states.length * pathTypeCount];
+        fillPaints = new Paint[states.length * pathTypeCount];
+        eventPaints = new Paint[states.length * pathTypeCount];
+        for (GraphInteractionState state : states) {
+            for (int i = 0; i < pathTypeCount; i++) {
+                final int paint = state.ordinal() * pathTypeCount + i;
+                linePaints[paint] = paintProvider.getPathPaint(getContext(), pathTypes[i], state);
+                fillPaints[paint] =
+                        paintProvider.getPathFillPaint(getContext(), pathTypes[i], state);
+                eventPaints[paint] = paintProvider.getEventPaint(getContext(), pathTypes[i], state);
+            }
+        }
+        maxLineStrokeWidth = 0;
+        for (Paint linePaint : linePaints) {
+            maxLineStrokeWidth = Math.max(maxLineStrokeWidth, linePaint.getStrokeWidth());
         }
 
         scrubLinePaint = paintProvider.getScrubLinePaint(getContext());
         baseLinePaint = paintProvider.getBaselinePaint(getContext());
 
-        invalidate();
+        invalidateGraph();
     }
 
     /**
@@ -505,8 +1005,142 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     public void setFillType(@FillType int fillType) {
         if (this.fillType != fillType) {
             this.fillType = fillType;
-            populatePath();
+            // the lines don't depend on the fill, so only the fill is built, the next time it is
+            // drawn
+            if (populateInFlight || !geometry.updateFillType(fillType)) {
+                populatePath();
+            } else {
+                invalidateGraph();
+            }
+        }
+    }
+
+    /**
+     * Return true if the graph's paths are decimated by a {@link PixelColumnDownsampler}.
+     */
+    public boolean isDecimationEnabled() {
+        return downsampler instanceof PixelColumnDownsampler;
+    }
+
+    /**
+     * Set whether to decimate the graph's paths when there are many more points than pixels. Each
+     * pixel column is then drawn through only its first, lowest, highest and last points, which
+     * looks the same but draws far fewer vertices. Path type changes and events are kept exact.
+     * This is a shortcut for {@link #setDownsampler(SparkDownsampler)} with a
+     * {@link PixelColumnDownsampler}.
+     */
+    public void setDecimationEnabled(boolean decimationEnabled) {
+        if (isDecimationEnabled() != decimationEnabled) {
+            setDownsampler(decimationEnabled ? new PixelColumnDownsampler() : null);
+        }
+    }
+
+    /**
+     * Get the {@link SparkDownsampler} picking the points to draw, or null if every point is drawn.
+     */
+    @Nullable
+    public SparkDownsampler getDownsampler() {
+        return downsampler;
+    }
+
+    /**
+     * Set a {@link SparkDownsampler} to pick which points to draw when there are too many, or null
+     * to draw every point. Path type changes and events are always kept.
+     */
+    public void setDownsampler(@Nullable SparkDownsampler downsampler) {
+        this.downsampler = downsampler;
+        populatePath();
+    }
+
+    /**
+     * Return true if the graph's paths are built in the background.
+     */
+    public boolean isAsyncPopulateEnabled() {
+        return populateExecutor != null;
+    }
+
+    /**
+     * Set whether to build the graph's paths on a shared background thread rather than on the
+     * main thread. The adapter is copied on that thread, under its
+     * {@linkplain SparkAdapter#getLock() lock}, and the previous paths keep being drawn until the
+     * new ones are ready.
+     */
+    public void setAsyncPopulateEnabled(boolean asyncPopulateEnabled) {
+        if (isAsyncPopulateEnabled() != asyncPopulateEnabled) {
+            setPopulateExecutor(asyncPopulateEnabled ? getDefaultPopulateExecutor() : null);
+        }
+    }
+
+    /**
+     * Set the {@link Executor} to build the graph's paths on, or null to build them on the main
+     * thread.
+     * @see #setAsyncPopulateEnabled(boolean)
+     */
+    public void setPopulateExecutor(@Nullable Executor populateExecutor) {
+        this.populateExecutor = populateExecutor;
+        populatePath();
+    }
+
+    private static synchronized Executor getDefaultPopulateExecutor() {
+        if (defaultPopulateExecutor == null) {
+            defaultPopulateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "SparkView populate");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultPopulateExecutor;
+    }
+
+    /**
+     * Returns true if only part of the graph is shown, see {@link #setVisibleXRange(float, float)}.
+     */
+    public boolean hasVisibleXRange() {
+        return !Float.isNaN(visibleMinX);
+    }
+
+    /**
+     * Get the smallest X value shown, or NaN if the whole graph is shown.
+     */
+    public float getVisibleMinX() {
+        return visibleMinX;
+    }
+
+    /**
+     * Get the largest X value shown, or NaN if the whole graph is shown.
+     */
+    public float getVisibleMaxX() {
+        return visibleMaxX;
+    }
+
+    /**
+     * Show only the points with X values between {@code minX} and {@code maxX}, stretched across
+     * the width of the view, with the Y axis fitted to them. The adapter's X values must be
+     * ascending: the visible points are found by binary search, and only they are read and drawn,
+     * so showing the last hour of a long history costs the same as an adapter holding just that
+     * hour.
+     * @see SparkAdapter#getDataBounds(int, int)
+     */
+    public void setVisibleXRange(float minX, float maxX) {
+        if (!(minX < maxX)) {
+            throw new IllegalArgumentException(
+                    "minX must be less than maxX: " + minX + ", " + maxX);
         }
+        visibleMinX = minX;
+        visibleMaxX = maxX;
+        populatePath();
+    }
+
+    /**
+     * Show the whole graph again, after {@link #setVisibleXRange(float, float)}.
+     */
+    public void clearVisibleXRange() {
+        visibleMinX = Float.NaN;
+        visibleMaxX = Float.NaN;
+        populatePath();
     }
 
     /**
@@ -520,8 +1154,26 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
      * Set the radius for the dot rendered when a graph event occurs.
      */
     public void setEventDotRadius(float eventDotRadius) {
-        this.eventDotRadius = eventDotRadius;
-        invalidate();
+        if (this.eventDotRadius != eventDotRadius) {
+            this.eventDotRadius = eventDotRadius;
+            // the dots are built with the paths, at their radius
+            populatePath();
+        }
+    }
+
+    /**
+     * Get the distance in pixels along the x axis within which scrubbing snaps to an event.
+     */
+    public float getEventSnapDistance() {
+        return eventSnapDistance;
+    }
+
+    /**
+     * Set the distance in pixels along the x axis within which scrubbing snaps to an event, see
+     * {@link SparkAdapter#shouldSnapToEvent(int)}. Scrubbing snaps to the nearest such event.
+     */
+    public void setEventSnapDistance(float eventSnapDistance) {
+        this.eventSnapDistance = eventSnapDistance;
     }
 
     /**
@@ -540,6 +1192,27 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         invalidate();
     }
 
+    /**
+     * Return true if zooming and panning are enabled on this view
+     */
+    public boolean isZoomEnabled() {
+        return zoomEnabled;
+    }
+
+    /**
+     * Set whether the user can pinch to zoom the X axis and drag or fling to pan it. The gestures
+     * change the {@linkplain #setVisibleXRange(float, float) visible X range}, so the adapter's X
+     * values must be ascending. While a gesture is in progress, the existing paths are only
+     * transformed; they are rebuilt for the new range once it comes to rest.
+     */
+    public void setZoomEnabled(boolean zoomEnabled) {
+        this.zoomEnabled = zoomEnabled;
+        zoomPanGestureDetector.setEnabled(zoomEnabled);
+        if (!zoomEnabled) {
+            settleGesture();
+        }
+    }
+
     /**
      * Get the current {@link OnScrubListener}
      */
@@ -585,10 +1258,32 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     /**
      * Returns a copy of current graphic X points
      * @return current graphic X points
+     * @see #getXPoints(float[])
      */
     @NonNull
     public List<Float> getXPoints() {
-        return new ArrayList<>(xPoints);
+        final List<Float> xPoints = new ArrayList<>(geometry.xPointCount);
+        for (int i = 0; i < geometry.xPointCount; i++) {
+            xPoints.add(geometry.xPoints[i]);
+        }
+        return xPoints;
+    }
+
+    /**
+     * @return the number of graphic X points, see {@link #getXPoints(float[])}
+     */
+    public int getXPointCount() {
+        return geometry.xPointCount;
+    }
+
+    /**
+     * Copies the current graphic X points into {@code dst}, which must hold at least
+     * {@link #getXPointCount()} values, without allocating.
+     * @return the number of points copied
+     */
+    public int getXPoints(@NonNull float[] dst) {
+        System.arraycopy(geometry.xPoints, 0, dst, 0, geometry.xPointCount);
+        return geometry.xPointCount;
     }
 
     private void doPathAnimation() {
@@ -616,12 +1311,15 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     }
 
     private void clearData() {
-        scaleHelper = null;
-        sparkPaths.reset();
-        renderPaths.reset();
-        baseLinePath.reset();
-        eventsPath.reset();
-        invalidate();
+        // drop any populate still running in the background
+        populateGeneration++;
+        animateWhenPopulated = false;
+        // there is nothing left to pan or zoom
+        cancelGesture();
+        geometry.clear();
+        animationPaths.reset();
+        renderPaths = geometry.sparkPaths;
+        invalidateGraph();
     }
 
     /**
@@ -635,8 +1333,24 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         final float xScale, yScale;
         // translates the Y values back into the bounding rect after being scaled
         final float xTranslation, yTranslation;
+        // the range of X values fitted to the width
+        final float minX, maxX;
+        // the bounds the helper was created for, before a flat range is widened
+        final float boundsMinX, boundsMinY, boundsMaxX, boundsMaxY;
 
         ScaleHelper(SparkAdapter adapter, RectF contentRect, float lineWidth, boolean fill) {
+            // Adapters may reuse the same RectF across calls, so read it without modifying it.
+            this(adapter.getCount(), adapter.getDataBounds(), contentRect, lineWidth, fill);
+        }
+
+        private ScaleHelper(int size, RectF bounds, RectF contentRect, float lineWidth,
+                boolean fill) {
+            this(size, bounds.left, bounds.top, bounds.right, bounds.bottom, contentRect, lineWidth,
+                    fill);
+        }
+
+        ScaleHelper(int size, float minX, float minY, float maxX, float maxY, RectF contentRect,
+                float lineWidth, boolean fill) {
             final float leftPadding = contentRect.left;
             final float topPadding = contentRect.top;
 
@@ -646,18 +1360,25 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
             this.width = contentRect.width() - lineWidthOffset;
             this.height = contentRect.height() - lineWidthOffset;
 
-            this.size = adapter.getCount();
+            this.size = size;
 
-            // get data bounds from adapter
-            RectF bounds = adapter.getDataBounds();
+            this.boundsMinX = minX;
+            this.boundsMinY = minY;
+            this.boundsMaxX = maxX;
+            this.boundsMaxY = maxY;
 
             // if data is a line (which technically has no size), expand bounds to center the data
-            bounds.inset(bounds.width() == 0 ? -1 : 0, bounds.height() == 0 ? -1 : 0);
+            if (maxX - minX == 0) {
+                minX -= 1;
+                maxX += 1;
+            }
+            if (maxY - minY == 0) {
+                minY -= 1;
+                maxY += 1;
+            }
 
-            final float minX = bounds.left;
-            final float maxX = bounds.right;
-            final float minY = bounds.top;
-            final float maxY = bounds.bottom;
+            this.minX = minX;
+            this.maxX = maxX;
 
             // xScale will compress or expand the min and max x values to be just inside the view
             this.xScale = width / (maxX - minX);
@@ -669,6 +1390,28 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
             this.yTranslation = minY * yScale + topPadding + (lineWidthOffset / 2);
         }
 
+        /**
+         * @return true if the helper was created for the given bounds, so a helper created for
+         * them now would map the same 'raw' values to the same coordinates.
+         */
+        boolean hasBounds(RectF bounds) {
+            return bounds.left == boundsMinX
+                    && bounds.top == boundsMinY
+                    && bounds.right == boundsMaxX
+                    && bounds.bottom == boundsMaxY;
+        }
+
+        /**
+         * @return true if the given bounds lie within the ones the helper was created for, so
+         * adding points within them to the data leaves its bounds, and the scale, as they are.
+         */
+        boolean containsBounds(RectF bounds) {
+            return bounds.left >= boundsMinX
+                    && bounds.top >= boundsMinY
+                    && bounds.right <= boundsMaxX
+                    && bounds.bottom <= boundsMaxY;
+        }
+
         /**
          * Given the 'raw' X value, scale it to fit within our view.
          */
@@ -683,6 +1426,31 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         public float getY(float rawY) {
             return height - (rawY * yScale) + yTranslation;
         }
+
+        /**
+         * Scales the first {@code count} 'raw' X values in place.
+         * @see #getX(float)
+         */
+        void scaleX(float[] points, int count) {
+            final float xScale = this.xScale;
+            final float xTranslation = this.xTranslation;
+            for (int i = 0; i < count; i++) {
+                points[i] = points[i] * xScale + xTranslation;
+            }
+        }
+
+        /**
+         * Scales and flips the first {@code count} 'raw' Y values in place.
+         * @see #getY(float)
+         */
+        void scaleY(float[] points, int count) {
+            final float height = this.height;
+            final float yScale = this.yScale;
+            final float yTranslation = this.yTranslation;
+            for (int i = 0; i < count; i++) {
+                points[i] = height - (points[i] * yScale) + yTranslation;
+            }
+        }
     }
 
     @Override
@@ -713,10 +1481,127 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     }
 
     /**
-     * returns the nearest index (into {@link #adapter}'s data) for the given x coordinate.
+     * Starts showing a zoom or pan gesture by transforming the current paths, if there are any.
+     * @return true if a gesture is active
+     */
+    private boolean beginGesture() {
+        if (gestureActive) return true;
+        if (adapter == null || geometry.scaleHelper == null) return false;
+        final int count;
+        synchronized (adapter.getLock()) {
+            count = adapter.getCount();
+            if (count < 2) return false;
+            gestureDataMinX = adapter.getX(0);
+            gestureDataMaxX = adapter.getX(count - 1);
+        }
+        if (!(gestureDataMinX < gestureDataMaxX)) return false;
+        gestureMinSpan = Math.min(
+                (gestureDataMaxX - gestureDataMinX) * MIN_VISIBLE_POINTS / (count - 1),
+                gestureDataMaxX - gestureDataMinX);
+
+        gestureMinX = geometry.scaleHelper.minX;
+        gestureMaxX = geometry.scaleHelper.maxX;
+        gestureActive = true;
+        getParent().requestDisallowInterceptTouchEvent(true);
+        return true;
+    }
+
+    /**
+     * Shows the X range of the given span starting at {@code minX}, kept within the data.
+     */
+    private void moveGestureRange(float minX, float span) {
+        span = clampGestureSpan(span, gestureMinSpan, gestureDataMaxX - gestureDataMinX);
+        minX = clampGestureMinX(minX, span, gestureDataMinX, gestureDataMaxX);
+        gestureMinX = minX;
+        gestureMaxX = minX + span;
+        updateGestureMatrix();
+        invalidate();
+    }
+
+    /**
+     * Returns the span of the X range to show for a gesture asking for {@code span}: at least
+     * {@code minSpan}, and at most the span of the data.
+     */
+    static float clampGestureSpan(float span, float minSpan, float dataSpan) {
+        return Math.max(minSpan, Math.min(span, dataSpan));
+    }
+
+    /**
+     * Returns the start of the X range {@code span} wide to show for a gesture asking for it to
+     * start at {@code minX}, moved as little as needed for the range to lie within the data.
+     */
+    static float clampGestureMinX(float minX, float span, float dataMinX, float dataMaxX) {
+        return Math.max(dataMinX, Math.min(minX, dataMaxX - span));
+    }
+
+    /**
+     * Returns the start of the X range {@code newSpan} wide that zooming around the pixel
+     * {@code focusX} leads to, from the range {@code span} wide starting at {@code minX} and shown
+     * across {@code width} pixels from {@code left}, so that the X value under the focus stays
+     * under it.
+     */
+    static float getZoomedMinX(float minX, float span, float newSpan, float focusX, float left,
+            float width) {
+        final float focus = minX + (focusX - left) * span / width;
+        return focus - (focus - minX) * newSpan / span;
+    }
+
+    /**
+     * Maps the paths, scaled for the X range they were built for, onto the range being shown.
+     */
+    private void updateGestureMatrix() {
+        final ScaleHelper scaleHelper = geometry.scaleHelper;
+        if (scaleHelper == null) return;
+        final float left = scaleHelper.getX(scaleHelper.minX);
+        final float xScale = scaleHelper.width / (gestureMaxX - gestureMinX);
+        final float xTranslation = left - gestureMinX * xScale;
+        final float scale = xScale / scaleHelper.xScale;
+        gestureMatrix.setScale(scale, 1f);
+        gestureMatrix.postTranslate(xTranslation - scale * scaleHelper.xTranslation, 0f);
+    }
+
+    /**
+     * Drops a zoom or pan gesture, and any fling, without showing the X range it had come to.
+     */
+    private void cancelGesture() {
+        flinging = false;
+        scroller.abortAnimation();
+        gestureActive = false;
+        gestureMatrix.reset();
+    }
+
+    /**
+     * Ends a zoom or pan gesture, rebuilding the paths for the X range it came to rest on.
+     */
+    private void settleGesture() {
+        flinging = false;
+        scroller.forceFinished(true);
+        if (!gestureActive) return;
+
+        gestureActive = false;
+        gestureMatrix.reset();
+        if (gestureMinX <= gestureDataMinX && gestureMaxX >= gestureDataMaxX) {
+            clearVisibleXRange();
+        } else {
+            setVisibleXRange(gestureMinX, gestureMaxX);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postInvalidateOnAnimationCompat() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postInvalidateOnAnimation();
+        } else {
+            postInvalidate();
+        }
+    }
+
+    /**
+     * returns the index of the nearest of the first {@code count} ascending {@code points} to the
+     * given x coordinate.
      */
-    static int getNearestIndex(List<Float> points, float x) {
-        int index = Collections.binarySearch(points, x);
+    static int getNearestIndex(float[] points, int count, float x) {
+        int index = Arrays.binarySearch(points, 0, count, x);
 
         // if binary search returns positive, we had an exact match, return that index
         if (index >= 0) return index;
@@ -728,11 +1613,11 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         if (index == 0) return index;
 
         // if we're inserting at the very end, then our guaranteed nearest index is the final one
-        if (index == points.size()) return --index;
+        if (index == count) return --index;
 
         // otherwise we need to check which of our two neighbors we're closer to
-        final float deltaUp = points.get(index) - x;
-        final float deltaDown = x - points.get(index - 1);
+        final float deltaUp = points[index] - x;
+        final float deltaDown = x - points[index - 1];
         if (deltaUp > deltaDown) {
             // if the below neighbor is closer, decrement our index
             index--;
@@ -744,41 +1629,43 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
     @Override
     public void onScrubbed(float x, float y) {
 
-        // If x is within the bounds of an event, snap to that event.
-        @Nullable Pair<Integer, Float> eventInfo = getEventToSnapTo(x);
-        if (eventInfo != null) {
-            x = eventInfo.second;
-        }
+        if (adapter == null || adapter.getCount() == 0 || geometry.xPointCount == 0) return;
+
+        // nearest points and events are looked up per pixel column, in a table built once
+        geometry.updateScrubTable(eventSnapDistance);
 
-        if (adapter == null || adapter.getCount() == 0) return;
         if (scrubListener != null) {
             getParent().requestDisallowInterceptTouchEvent(true);
-            int index = eventInfo != null ? eventInfo.first : getNearestIndex(xPoints, x);
-            if (scrubListener != null && index != lastIndexSentToScrubListener) {
-                lastIndexSentToScrubListener = index;
-                scrubListener.onScrubbed(adapter.getItem(index));
+            final int index = geometry.getScrubIndex(x);
+            if (index != lastIndexSentToScrubListener) {
+                final Object item = getScrubbedItem(index);
+                if (item != null) {
+                    lastIndexSentToScrubListener = index;
+                    scrubListener.onScrubbed(item);
+                }
             }
         }
 
-        setScrubLine(x);
+        // If x is within the bounds of an event, snap to that event.
+        setScrubLine(geometry.getScrubX(x));
     }
 
-    private @Nullable Pair<Integer, Float> getEventToSnapTo(float x) {
-        for (Map.Entry<Integer, Float> event : eventXPoints.entrySet()) {
-            final float eventX = event.getValue();
-            if (Math.abs(eventX - x) < DEFAULT_EVENT_SNAP_DISTANCE
-                && adapter != null && adapter.shouldSnapToEvent(event.getKey())) {
-                return new Pair<>(event.getKey(), event.getValue());
-            }
+    /**
+     * Returns the adapter's item at an index of the points being drawn, or null if the data
+     * changed since they were read, so the index may no longer point at the same item.
+     */
+    @Nullable
+    private Object getScrubbedItem(int index) {
+        synchronized (adapter.getLock()) {
+            if (adapter.getDataVersion() != geometry.dataVersion) return null;
+            return adapter.getItem(index);
         }
-
-        return null;
     }
 
     @Override
     public void onScrubEnded() {
         if (scrubListener != null) scrubListener.onScrubbed(null);
-        setScrubLine(null);
+        setScrubLine(Float.NaN);
     }
 
     /**
@@ -792,14 +1679,98 @@ public class SparkView extends View implements ScrubGestureDetector.ScrubListene
         void onScrubbed(@Nullable Object value);
     }
 
-    private final DataSetObserver dataSetObserver = new DataSetObserver() {
+    private final OnTouchListener touchListener = new OnTouchListener() {
+        @Override
+        public boolean onTouch(View v, MotionEvent event) {
+            // scrubbing and zooming are exclusive: once either has started, it keeps the gesture
+            final boolean scrubbing = !Float.isNaN(scrubLine);
+            boolean handled = scrubGestureDetector.onTouch(v, event);
+            if (!scrubbing && zoomPanGestureDetector.onTouch(v, event)) {
+                handled = true;
+                if (zoomPanGestureDetector.isInProgress()) {
+                    scrubGestureDetector.cancelLongPress();
+                }
+            }
+            return handled;
+        }
+    };
+
+    private final ZoomPanGestureDetector.ZoomPanListener zoomPanListener =
+            new ZoomPanGestureDetector.ZoomPanListener() {
+                @Override
+                public void onGestureStarted() {
+                    // catching a fling keeps its range, so dragging carries on from there
+                    flinging = false;
+                    scroller.forceFinished(true);
+                }
+
+                @Override
+                public void onPan(float distanceX) {
+                    if (!beginGesture()) return;
+                    final ScaleHelper scaleHelper = geometry.scaleHelper;
+                    if (scaleHelper == null) return;
+                    final float span = gestureMaxX - gestureMinX;
+                    moveGestureRange(gestureMinX + distanceX * span / scaleHelper.width, span);
+                }
+
+                @Override
+                public void onZoom(float scaleX, float focusX) {
+                    if (!beginGesture()) return;
+                    final ScaleHelper scaleHelper = geometry.scaleHelper;
+                    if (scaleHelper == null) return;
+                    final float span = gestureMaxX - gestureMinX;
+                    final float newSpan = clampGestureSpan(span / scaleX, gestureMinSpan,
+                            gestureDataMaxX - gestureDataMinX);
+                    moveGestureRange(getZoomedMinX(gestureMinX, span, newSpan, focusX,
+                            scaleHelper.getX(scaleHelper.minX), scaleHelper.width), newSpan);
+                }
+
+                @Override
+                public void onFling(float velocityX) {
+                    final ScaleHelper scaleHelper = geometry.scaleHelper;
+                    if (!gestureActive || scaleHelper == null) return;
+                    final float span = gestureMaxX - gestureMinX;
+                    flingPixelsPerUnit = scaleHelper.width / span;
+                    scroller.fling(
+                            Math.round((gestureMinX - gestureDataMinX) * flingPixelsPerUnit), 0,
+                            Math.round(-velocityX), 0,
+                            0, Math.round((gestureDataMaxX - gestureDataMinX - span)
+                                    * flingPixelsPerUnit),
+                            0, 0);
+                    flinging = true;
+                    postInvalidateOnAnimationCompat();
+                }
+
+                @Override
+                public void onGestureEnded() {
+                    settleGesture();
+                }
+            };
+
+    private final SparkDataSetObserver dataSetObserver = new SparkDataSetObserver() {
         @Override
         public void onChanged() {
             super.onChanged();
+            // the animation starts once the new paths are built, which may be in the background
+            animateWhenPopulated = sparkAnimator != null;
             populatePath();
+        }
+
+        @Override
+        public void onItemsAppended(int count) {
+            if (sparkAnimator != null) {
+                onChanged();
+            } else {
+                appendPath(count);
+            }
+        }
 
+        @Override
+        public void onItemRangeChanged(int start, int count) {
             if (sparkAnimator != null) {
-                doPathAnimation();
+                onChanged();
+            } else {
+                updatePathRange(start, count);
             }
         }
 
@@ -0,0 +1,166 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A {@link SparkAdapter} for live data, holding the most recent points in a fixed-capacity ring
+ * buffer. Pushing a point is O(1); once the buffer is full, every push evicts the oldest point.
+ * The data bounds are tracked as points come and go, so {@link #getDataBounds()} does not scan
+ * the data.
+ *
+ * Like any other adapter, observers are not notified automatically. After pushing, call
+ * {@link #notifyItemsAppended(int)} if no points were evicted, or {@link #notifyDataSetChanged()}
+ * otherwise.
+ *
+ * Points may be pushed from a background thread, as long as the notifications are posted to the
+ * main thread: pushing and every read share the adapter's lock, and {@link SparkView} holds it
+ * while it reads, so the graph is always built from a consistent state of the buffer.
+ */
+public class StreamingSparkAdapter extends SparkAdapter {
+    private static final Set<SparkPathType> SUPPORTED_PATH_TYPES =
+            Collections.<SparkPathType>singleton(SparkPathType.Legacy.INSTANCE);
+
+    private final float[] xData;
+    private final float[] yData;
+    private final SlidingWindowMinMax xExtremes;
+    private final SlidingWindowMinMax yExtremes;
+
+    // ring index of the oldest point, and the number of points held
+    private int head;
+    private int count;
+
+    /**
+     * @param capacity the maximum number of points held before the oldest ones are evicted
+     */
+    public StreamingSparkAdapter(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        xData = new float[capacity];
+        yData = new float[capacity];
+        xExtremes = new SlidingWindowMinMax(capacity);
+        yExtremes = new SlidingWindowMinMax(capacity);
+    }
+
+    /**
+     * @return the maximum number of points held before the oldest ones are evicted
+     */
+    public int getCapacity() {
+        return yData.length;
+    }
+
+    /**
+     * Appends a point, evicting the oldest one if the buffer is full.
+     * @return true if a point was evicted to make room
+     */
+    public synchronized boolean push(float x, float y) {
+        final int capacity = yData.length;
+        final boolean evict = count == capacity;
+        if (evict) {
+            head = (head + 1) % capacity;
+            count--;
+            xExtremes.removeOldest();
+            yExtremes.removeOldest();
+        }
+
+        final int slot = (head + count) % capacity;
+        xData[slot] = x;
+        yData[slot] = y;
+        count++;
+        xExtremes.add(x);
+        yExtremes.add(y);
+        markDataChanged();
+        return evict;
+    }
+
+    /**
+     * Removes all points. Does not notify observers.
+     */
+    public synchronized void clear() {
+        head = 0;
+        count = 0;
+        xExtremes.clear();
+        yExtremes.clear();
+        markDataChanged();
+    }
+
+    @Override
+    public synchronized int getCount() {
+        return count;
+    }
+
+    @NonNull
+    @Override
+    public synchronized Object getItem(int index) {
+        return getY(index);
+    }
+
+    @Override
+    public synchronized float getX(int index) {
+        return xData[slot(index)];
+    }
+
+    @Override
+    public synchronized float getY(int index) {
+        return yData[slot(index)];
+    }
+
+    @Override
+    public synchronized void copyX(@NonNull float[] dst, int from, int count) {
+        copy(xData, dst, from, count);
+    }
+
+    @Override
+    public synchronized void copyY(@NonNull float[] dst, int from, int count) {
+        copy(yData, dst, from, count);
+    }
+
+    @NonNull
+    @Override
+    public synchronized RectF getDataBounds() {
+        float minY = yExtremes.getMin();
+        float maxY = yExtremes.getMax();
+        if (hasBaseLine()) {
+            minY = Math.min(minY, getBaseLine());
+            maxY = Math.max(maxY, getBaseLine());
+        }
+
+        return obtainDataBounds(xExtremes.getMin(), minY, xExtremes.getMax(), maxY);
+    }
+
+    @Override
+    protected SparkPathType getPathType(int index) {
+        return SparkPathType.Legacy.INSTANCE;
+    }
+
+    @Override
+    protected Set<SparkPathType> getSupportedPathTypes() {
+        return SUPPORTED_PATH_TYPES;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + count);
+        }
+        return (head + index) % yData.length;
+    }
+
+    /**
+     * Copies a range of points out of the ring, in at most two contiguous pieces.
+     */
+    private void copy(float[] ring, float[] dst, int from, int count) {
+        if (from < 0 || count < 0 || from + count > this.count) {
+            throw new IndexOutOfBoundsException(
+                    "from " + from + ", count " + count + ", size " + this.count);
+        }
+        if (count == 0) return;
+
+        final int start = (head + from) % ring.length;
+        final int firstPiece = Math.min(count, ring.length - start);
+        System.arraycopy(ring, start, dst, 0, firstPiece);
+        System.arraycopy(ring, 0, dst, firstPiece, count - firstPiece);
+    }
+}
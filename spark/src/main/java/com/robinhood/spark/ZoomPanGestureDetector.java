@@ -0,0 +1,148 @@
+package com.robinhood.spark;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+/**
+ * Detects horizontal pinch-zoom, drag and fling gestures. Drags that set off vertically are left
+ * alone for the rest of the touch sequence, so a graph in a vertically scrolling list doesn't
+ * keep the list from scrolling.
+ */
+class ZoomPanGestureDetector implements View.OnTouchListener {
+    private final ZoomPanListener zoomPanListener;
+    private final GestureDetector gestureDetector;
+    private final ScaleGestureDetector scaleGestureDetector;
+
+    private boolean enabled;
+    private boolean inProgress;
+    private boolean flinging;
+    // whether the current drag set off horizontally, once it has moved past the touch slop
+    private boolean dragDecided;
+    private boolean dragHorizontal;
+
+    ZoomPanGestureDetector(@NonNull Context context, @NonNull ZoomPanListener zoomPanListener) {
+        this.zoomPanListener = zoomPanListener;
+        gestureDetector = new GestureDetector(context, gestureListener);
+        gestureDetector.setIsLongpressEnabled(false);
+        scaleGestureDetector = new ScaleGestureDetector(context, scaleGestureListener);
+    }
+
+    private final GestureDetector.SimpleOnGestureListener gestureListener =
+            new GestureDetector.SimpleOnGestureListener() {
+                @Override
+                public boolean onDown(MotionEvent e) {
+                    return true;
+                }
+
+                @Override
+                public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX,
+                        float distanceY) {
+                    // while pinching, the focus point moving is part of the zoom
+                    if (scaleGestureDetector.isInProgress()) return false;
+                    if (!dragDecided) {
+                        // the first scroll comes once past the touch slop, and covers the whole
+                        // way from where the finger went down
+                        dragDecided = true;
+                        dragHorizontal = Math.abs(distanceX) > Math.abs(distanceY);
+                    }
+                    if (!dragHorizontal) return false;
+                    inProgress = true;
+                    zoomPanListener.onPan(distanceX);
+                    return true;
+                }
+
+                @Override
+                public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX,
+                        float velocityY) {
+                    if (!inProgress || scaleGestureDetector.isInProgress()) return false;
+                    flinging = true;
+                    zoomPanListener.onFling(velocityX);
+                    return true;
+                }
+            };
+
+    private final ScaleGestureDetector.SimpleOnScaleGestureListener scaleGestureListener =
+            new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                @Override
+                public boolean onScale(ScaleGestureDetector detector) {
+                    // only the horizontal distance between the fingers zooms the x axis
+                    final float previousSpanX = detector.getPreviousSpanX();
+                    if (previousSpanX <= 0) return false;
+                    inProgress = true;
+                    zoomPanListener.onZoom(
+                            detector.getCurrentSpanX() / previousSpanX, detector.getFocusX());
+                    return true;
+                }
+            };
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true if the current touch sequence has zoomed or panned
+     */
+    public boolean isInProgress() {
+        return inProgress;
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        if (!enabled) return false;
+
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            inProgress = false;
+            flinging = false;
+            dragDecided = false;
+            dragHorizontal = false;
+            zoomPanListener.onGestureStarted();
+        }
+
+        boolean handled = scaleGestureDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                // a fling ends the gesture once it comes to rest
+                if (!flinging) {
+                    zoomPanListener.onGestureEnded();
+                }
+                inProgress = false;
+                return true;
+            default:
+                return handled || inProgress;
+        }
+    }
+
+    interface ZoomPanListener {
+        /**
+         * A finger went down, stopping any fling in progress.
+         */
+        void onGestureStarted();
+
+        /**
+         * The user dragged the graph by {@code distanceX} pixels, positive when dragging left.
+         */
+        void onPan(float distanceX);
+
+        /**
+         * The user pinched by a factor of {@code scaleX} around {@code focusX}.
+         */
+        void onZoom(float scaleX, float focusX);
+
+        /**
+         * The user lifted their finger mid-drag at {@code velocityX} pixels per second.
+         */
+        void onFling(float velocityX);
+
+        /**
+         * All fingers were lifted without a fling.
+         */
+        void onGestureEnded();
+    }
+}
@@ -14,6 +14,8 @@ import com.robinhood.spark.SparkView;
 public class LineSparkAnimator extends Animator implements SparkAnimator {
 
     private final ValueAnimator animator;
+    // the clip of the current frame, reused across frames
+    private final RectF contentClip = new RectF();
 
     public LineSparkAnimator() {
         animator = ValueAnimator.ofFloat(0, 1);
@@ -25,16 +27,21 @@ public class LineSparkAnimator extends Animator implements SparkAnimator {
 
         final RectF contentRect = sparkView.getContentRect();
 
+        // the animator is reused, so drop the listener of the previous animation
+        animator.removeAllUpdateListeners();
+
         animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override public void onAnimationUpdate(ValueAnimator animation) {
-                float animatedValue = (float) animation.getAnimatedValue();
+                // the animated fraction runs from 0 to 1 like our values, without boxing them
+                float animatedValue = animation.getAnimatedFraction();
 
                 float newWidth = (contentRect.right - contentRect.left) * animatedValue;
-                sparkView.setContentClip(new RectF(
+                contentClip.set(
                     contentRect.left,
                     contentRect.top,
                     contentRect.left + newWidth,
-                    contentRect.bottom));
+                    contentRect.bottom);
+                sparkView.setContentClip(contentClip);
             }
         });
 
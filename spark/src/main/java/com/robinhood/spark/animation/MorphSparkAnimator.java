@@ -6,14 +6,13 @@ import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
 import android.support.annotation.IntRange;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 
 import com.robinhood.spark.SparkPath;
 import com.robinhood.spark.SparkPaths;
 import com.robinhood.spark.SparkView;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,7 +21,7 @@ import java.util.Map;
 public class MorphSparkAnimator extends Animator implements SparkAnimator {
 
     private final ValueAnimator animator;
-    private Map<SparkPath.SparkPathSegment, List<Float>> oldYPointsBySegment = new HashMap<>();
+    private Map<SparkPath.SparkPathSegment, float[]> oldYPointsBySegment = new HashMap<>();
     private boolean animate = true;
 
     public MorphSparkAnimator() {
@@ -35,19 +34,15 @@ public class MorphSparkAnimator extends Animator implements SparkAnimator {
 
         final SparkPaths sparkPaths = sparkView.getSparkPaths();
 
-        final Map<SparkPath.SparkPathSegment, List<Float>> xPointsBySegment = new HashMap<>();
-        final Map<SparkPath.SparkPathSegment, List<Float>> yPointsBySegment = new HashMap<>();
+        final Map<SparkPath.SparkPathSegment, float[]> xPointsBySegment = new HashMap<>();
+        final Map<SparkPath.SparkPathSegment, float[]> yPointsBySegment = new HashMap<>();
 
         for (SparkPath sparkPath : sparkPaths.paths.values()) {
             for (SparkPath.SparkPathSegment segment : sparkPath.segments) {
-                if (!segment.xPoints.isEmpty()) {
-                    xPointsBySegment.put(segment, new ArrayList<>(segment.xPoints));
+                if (segment.getPointCount() > 0) {
+                    xPointsBySegment.put(segment, copyXPoints(segment));
+                    yPointsBySegment.put(segment, copyYPoints(segment));
                 }
-
-                if (!segment.yPoints.isEmpty()) {
-                    yPointsBySegment.put(segment, new ArrayList<>(segment.yPoints));
-                }
-
             }
         }
 
@@ -60,38 +55,30 @@ public class MorphSparkAnimator extends Animator implements SparkAnimator {
             return null;
         }
 
+        // look everything up once, so each frame only walks arrays
+        final int segmentCount = xPointsBySegment.size();
+        final SparkPath.SparkPathSegment[] segments =
+                xPointsBySegment.keySet().toArray(new SparkPath.SparkPathSegment[segmentCount]);
+        final float[][] xPointsOfSegments = new float[segmentCount][];
+        final float[][] yPointsOfSegments = new float[segmentCount][];
+        final float[][] oldYPointsOfSegments = new float[segmentCount][];
+        for (int k = 0; k < segmentCount; k++) {
+            xPointsOfSegments[k] = xPointsBySegment.get(segments[k]);
+            yPointsOfSegments[k] = yPointsBySegment.get(segments[k]);
+            oldYPointsOfSegments[k] = oldYPointsBySegment.get(segments[k]);
+        }
+
+        // the animator is reused, so drop the listeners of the previous animation
+        animator.removeAllUpdateListeners();
+        animator.removeAllListeners();
+
         animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
 
-                float animatedValue = (float) animation.getAnimatedValue();
-                for (SparkPath.SparkPathSegment segment : xPointsBySegment.keySet()) {
-                    @Nullable List<Float> oldYPoints = oldYPointsBySegment.get(segment);
-                    List<Float> xPoints = xPointsBySegment.get(segment);
-                    List<Float> yPoints = yPointsBySegment.get(segment);
-
-                    float step;
-                    float x, y, oldY;
-
-                    segment.reset();
-
-                    for (int i = 0; i < xPoints.size(); i++) {
-                        // get oldY, can be 0 (zero) if current points are larger
-                        oldY = oldYPoints != null && oldYPoints.size() > i ? oldYPoints.get(i) : 0f;
-
-                        step = yPoints.get(i) - oldY;
-                        y = (step * animatedValue) + oldY;
-                        x = xPoints.get(i);
-
-                        if (i == 0) {
-                            segment.moveTo(x, y);
-                        } else {
-                            segment.lineTo(x, y);
-                        }
-                    }
-
-                }
-
+                // the animated fraction runs from 0 to 1 like our values, without boxing them
+                morphSegments(segments, xPointsOfSegments, yPointsOfSegments,
+                        oldYPointsOfSegments, animation.getAnimatedFraction());
                 sparkView.setAnimationPath(sparkPaths);
             }
         });
@@ -106,6 +93,41 @@ public class MorphSparkAnimator extends Animator implements SparkAnimator {
         return animator;
     }
 
+    /**
+     * Moves each segment's points the given fraction of the way from their old to their new y
+     * coordinates. Runs every frame, so it must not allocate.
+     */
+    @VisibleForTesting
+    static void morphSegments(SparkPath.SparkPathSegment[] segments, float[][] xPointsOfSegments,
+            float[][] yPointsOfSegments, float[][] oldYPointsOfSegments, float animatedValue) {
+        for (int k = 0; k < segments.length; k++) {
+            SparkPath.SparkPathSegment segment = segments[k];
+            @Nullable float[] oldYPoints = oldYPointsOfSegments[k];
+            float[] xPoints = xPointsOfSegments[k];
+            float[] yPoints = yPointsOfSegments[k];
+
+            float step;
+            float x, y, oldY;
+
+            segment.reset();
+
+            for (int i = 0; i < xPoints.length; i++) {
+                // get oldY, can be 0 (zero) if current points are larger
+                oldY = oldYPoints != null && oldYPoints.length > i ? oldYPoints[i] : 0f;
+
+                step = yPoints[i] - oldY;
+                y = (step * animatedValue) + oldY;
+                x = xPoints[i];
+
+                if (i == 0) {
+                    segment.moveTo(x, y);
+                } else {
+                    segment.lineTo(x, y);
+                }
+            }
+        }
+    }
+
     @Override public void onNewPathsPopulated(SparkView sparkView) {
         if (!oldYPointsBySegment.isEmpty()) {
             return;
@@ -113,14 +135,29 @@ public class MorphSparkAnimator extends Animator implements SparkAnimator {
 
         for (SparkPath sparkPath : sparkView.getSparkPaths().paths.values()) {
             for (SparkPath.SparkPathSegment segment : sparkPath.segments) {
-                if (!segment.yPoints.isEmpty()) {
-                    oldYPointsBySegment.put(segment, new ArrayList<>(segment.yPoints));
+                if (segment.getPointCount() > 0) {
+                    oldYPointsBySegment.put(segment, copyYPoints(segment));
                 }
-
             }
         }
     }
 
+    private static float[] copyXPoints(SparkPath.SparkPathSegment segment) {
+        final float[] xPoints = new float[segment.getPointCount()];
+        for (int i = 0; i < xPoints.length; i++) {
+            xPoints[i] = segment.getX(i);
+        }
+        return xPoints;
+    }
+
+    private static float[] copyYPoints(SparkPath.SparkPathSegment segment) {
+        final float[] yPoints = new float[segment.getPointCount()];
+        for (int i = 0; i < yPoints.length; i++) {
+            yPoints[i] = segment.getY(i);
+        }
+        return yPoints;
+    }
+
     @Override
     public long getStartDelay() {
         return animator.getStartDelay();
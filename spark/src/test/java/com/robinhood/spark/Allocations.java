@@ -0,0 +1,45 @@
+package com.robinhood.spark;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Checks that code run on every frame or every touch event doesn't allocate. Skips the test on
+ * JVMs that can't count the bytes a thread allocates.
+ */
+public final class Allocations {
+    private static final int WARM_UP = 1000;
+    private static final int ITERATIONS = 10000;
+
+    private Allocations() {
+    }
+
+    /**
+     * Runs the given code many times over, and fails if it allocates. A few stray bytes from the
+     * JVM are tolerated, but not one object per call.
+     */
+    public static void assertDoesNotAllocate(Runnable hotPath) {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < WARM_UP; i++) {
+            hotPath.run();
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            hotPath.run();
+        }
+        final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("allocated " + allocated + " bytes in " + ITERATIONS + " calls",
+                allocated < ITERATIONS);
+    }
+}
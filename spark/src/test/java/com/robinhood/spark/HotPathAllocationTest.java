@@ -0,0 +1,268 @@
+package com.robinhood.spark;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PathEffect;
+import android.graphics.Xfermode;
+
+import org.junit.Test;
+
+import static com.robinhood.spark.Allocations.assertDoesNotAllocate;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Runs the code SparkView calls on every frame and every scrub event many times over, and fails
+ * if it allocates.
+ */
+public class HotPathAllocationTest {
+    private static final int LONG_SEGMENT_POINT_COUNT = SparkView.DRAW_LINES_MIN_POINT_COUNT + 44;
+
+    private final SparkPathType[] pathTypes = TestPathType.values();
+
+    @Test
+    public void test_drawPaths_doesNotAllocate() {
+        final SparkPaths paths = new SparkPaths();
+        for (SparkPathType pathType : pathTypes) {
+            final SparkPath sparkPath = paths.obtainPath(pathType);
+            for (int i = 0; i < 3; i++) {
+                sparkPath.segments.add(new SparkPath.SparkPathSegment(pathType, i));
+            }
+        }
+        final Paint[] linePaints = createPaints(2 * pathTypes.length);
+        final Paint[] fillPaints = createPaints(2 * pathTypes.length);
+        final CountingCanvas canvas = new CountingCanvas();
+
+        assertDoesNotAllocate(new Runnable() {
+            @Override
+            public void run() {
+                SparkView.drawPaths(canvas, paths, pathTypes, pathTypes.length, linePaints,
+                        fillPaints, 100f, 0);
+            }
+        });
+        assertTrue(canvas.drawCount > 0);
+    }
+
+    @Test
+    public void test_drawPaths_longSegments_doesNotAllocate() {
+        final SparkPaths paths = createLongPaths();
+        final Paint[] linePaints = createLinePaints(2 * pathTypes.length);
+        final Paint[] fillPaints = createPaints(2 * pathTypes.length);
+        final CountingCanvas canvas = new CountingCanvas();
+
+        assertDoesNotAllocate(new Runnable() {
+            @Override
+            public void run() {
+                SparkView.drawPaths(canvas, paths, pathTypes, 0, linePaints, fillPaints, 100f, 0);
+            }
+        });
+        // the lines are drawn from their vertices, and only the fills as paths
+        assertTrue(canvas.drawLinesCount > 0);
+        assertEquals(canvas.drawLinesCount, canvas.drawCount);
+        assertEquals((LONG_SEGMENT_POINT_COUNT - 1) * 4, canvas.lastLineFloatCount);
+    }
+
+    @Test
+    public void test_drawPaths_changingLongSegments_doesNotAllocate() {
+        final SparkPaths paths = createLongPaths();
+        final Paint[] linePaints = createLinePaints(2 * pathTypes.length);
+        final Paint[] fillPaints = createPaints(2 * pathTypes.length);
+        final CountingCanvas canvas = new CountingCanvas();
+
+        assertDoesNotAllocate(new Runnable() {
+            float offset;
+
+            @Override
+            public void run() {
+                // new vertices every frame, as when animating, so the lines and fills are rebuilt
+                offset = (offset + 1) % 50;
+                for (int i = 0, pathCount = paths.getPathCount(); i < pathCount; i++) {
+                    final SparkPath sparkPath = paths.getPath(i);
+                    for (int j = 0; j < sparkPath.segments.size(); j++) {
+                        addPoints(sparkPath.segments.get(j), offset);
+                    }
+                }
+                SparkView.drawPaths(canvas, paths, pathTypes, 0, linePaints, fillPaints,
+                        100f + offset, 0);
+            }
+        });
+        assertTrue(canvas.drawLinesCount > 0);
+        assertEquals((LONG_SEGMENT_POINT_COUNT - 1) * 4, canvas.lastLineFloatCount);
+    }
+
+    @Test
+    public void test_drawLinesSplit_doesNotAllocate() {
+        final SparkPath.SparkPathSegment segment = new TestSparkPathSegment(TestPathType.SOLID, 0);
+        addPoints(segment, 0);
+        final int lineFloatCount = segment.updateLines();
+        final Paint leftPaint = new Paint();
+        final Paint rightPaint = new Paint();
+        final CountingCanvas canvas = new CountingCanvas();
+
+        assertDoesNotAllocate(new Runnable() {
+            float scrubLine;
+
+            @Override
+            public void run() {
+                scrubLine = (scrubLine + 7.3f) % LONG_SEGMENT_POINT_COUNT;
+                SparkView.drawLinesSplit(canvas, segment.lines, lineFloatCount,
+                        scrubLine - 2, leftPaint, scrubLine + 2, rightPaint);
+            }
+        });
+        assertTrue(canvas.drawLinesCount > 0);
+        assertTrue(canvas.drawLineCount > 0);
+    }
+
+    @Test
+    public void test_drawEvents_doesNotAllocate() {
+        final SparkGeometry geometry = new SparkGeometry();
+        geometry.pathTypes = pathTypes;
+        geometry.eventPaths = new Path[] {new Path(), null};
+        final Paint[] eventPaints = createPaints(2 * pathTypes.length);
+        final CountingCanvas canvas = new CountingCanvas();
+
+        assertDoesNotAllocate(new Runnable() {
+            @Override
+            public void run() {
+                SparkView.drawEvents(canvas, geometry, pathTypes, 0, eventPaints);
+            }
+        });
+        assertTrue(canvas.drawCount > 0);
+    }
+
+    @Test
+    public void test_scrubLookups_doNotAllocate() {
+        final SparkGeometry geometry = new SparkGeometry();
+        geometry.width = 500;
+        geometry.xPoints = new float[1000];
+        geometry.xPointIndices = new int[1000];
+        for (int i = 0; i < geometry.xPoints.length; i++) {
+            geometry.xPoints[i] = i / 2f;
+            // points map back to every other item of the adapter
+            geometry.xPointIndices[i] = 2 * i;
+        }
+        geometry.xPointCount = geometry.xPoints.length;
+        geometry.eventXPoints = new float[] {10f, 200f, 450f};
+        geometry.eventPointIndices = new int[] {20, 400, 900};
+        geometry.eventSnaps = new boolean[] {true, false, true};
+        geometry.eventPointCount = 3;
+        geometry.updateScrubTable(20f);
+
+        final float[] sum = new float[1];
+        assertDoesNotAllocate(new Runnable() {
+            float x;
+
+            @Override
+            public void run() {
+                // the table is up to date, so this is a check and a return
+                geometry.updateScrubTable(20f);
+                x = (x + 7.3f) % 600f;
+                sum[0] += geometry.getScrubIndex(x) + geometry.getScrubX(x);
+                sum[0] += SparkView.getNearestIndex(geometry.xPoints, geometry.xPointCount, x);
+            }
+        });
+        assertTrue(sum[0] > 0);
+
+        // a scrub near a snapping event reports it, and elsewhere the nearest point
+        assertEquals(900, geometry.getScrubIndex(455f));
+        assertEquals(450f, geometry.getScrubX(455f));
+        assertEquals(2 * geometry.getScrubPoint(150f), geometry.getScrubIndex(150f));
+        assertEquals(150f, geometry.getScrubX(150f));
+    }
+
+    private SparkPaths createLongPaths() {
+        final SparkPaths paths = new SparkPaths();
+        for (SparkPathType pathType : pathTypes) {
+            final SparkPath sparkPath = paths.obtainPath(pathType);
+            for (int i = 0; i < 2; i++) {
+                final SparkPath.SparkPathSegment segment = new TestSparkPathSegment(pathType, i);
+                addPoints(segment, 0);
+                sparkPath.segments.add(segment);
+            }
+        }
+        return paths;
+    }
+
+    private static void addPoints(SparkPath.SparkPathSegment segment, float offset) {
+        segment.reset();
+        segment.moveTo(0, offset);
+        for (int i = 1; i < LONG_SEGMENT_POINT_COUNT; i++) {
+            segment.lineTo(i, (i % 10) + offset);
+        }
+    }
+
+    private static Paint[] createPaints(int count) {
+        final Paint[] paints = new Paint[count];
+        for (int i = 0; i < count; i++) {
+            paints[i] = new Paint();
+        }
+        return paints;
+    }
+
+    private static Paint[] createLinePaints(int count) {
+        final Paint[] paints = new Paint[count];
+        for (int i = 0; i < count; i++) {
+            paints[i] = new RoundLinePaint();
+        }
+        return paints;
+    }
+
+    /**
+     * A paint a line can be drawn with as separate lines, since real paints can't be set up in
+     * unit tests.
+     */
+    private static class RoundLinePaint extends Paint {
+        @Override
+        public PathEffect getPathEffect() {
+            return null;
+        }
+
+        @Override
+        public Cap getStrokeCap() {
+            return Cap.ROUND;
+        }
+
+        @Override
+        public int getAlpha() {
+            return 255;
+        }
+
+        @Override
+        public Xfermode getXfermode() {
+            return null;
+        }
+
+        @Override
+        public float getStrokeWidth() {
+            return 2f;
+        }
+    }
+
+    private static class CountingCanvas extends Canvas {
+        int drawCount;
+        int drawLinesCount;
+        int drawLineCount;
+        int lastLineFloatCount;
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            drawCount++;
+        }
+
+        @Override
+        public void drawLines(float[] pts, int offset, int count, Paint paint) {
+            drawLinesCount++;
+            lastLineFloatCount = count;
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+            drawLineCount++;
+        }
+    }
+
+    private enum TestPathType implements SparkPathType {
+        SOLID, DASHED
+    }
+}
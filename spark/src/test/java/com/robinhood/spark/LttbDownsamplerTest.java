@@ -0,0 +1,99 @@
+package com.robinhood.spark;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class LttbDownsamplerTest {
+
+    @Test
+    public void test_shouldDownsample() {
+        LttbDownsampler downsampler = new LttbDownsampler(100);
+        assertFalse(downsampler.shouldDownsample(100, 1000));
+        assertTrue(downsampler.shouldDownsample(101, 1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_targetTooSmall() {
+        new LttbDownsampler(2);
+    }
+
+    @Test
+    public void test_underBudget_keepsEverything() {
+        LttbDownsampler downsampler = new LttbDownsampler(10);
+        float[] x = {0, 1, 2, 3};
+        float[] y = {4, 2, 6, 1};
+        int[] out = new int[x.length];
+
+        int count = downsampler.downsample(x, y, 0, x.length, 3, out);
+
+        assertEquals(4, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, out[i]);
+        }
+    }
+
+    @Test
+    public void test_hitsTargetAndKeepsEnds() {
+        int pointCount = 10000;
+        float[] x = new float[pointCount];
+        float[] y = new float[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            x[i] = i / 10f;
+            y[i] = (float) Math.sin(i / 100.0);
+        }
+        int[] out = new int[pointCount];
+        LttbDownsampler downsampler = new LttbDownsampler(100);
+
+        int count = downsampler.downsample(x, y, 0, pointCount, x[pointCount - 1], out);
+
+        assertEquals(100, count);
+        assertEquals(0, out[0]);
+        assertEquals(pointCount - 1, out[count - 1]);
+        for (int i = 1; i < count; i++) {
+            assertTrue(out[i] > out[i - 1]);
+        }
+    }
+
+    @Test
+    public void test_keepsSpike() {
+        int pointCount = 1000;
+        float[] x = new float[pointCount];
+        float[] y = new float[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            x[i] = i;
+        }
+        y[437] = 50;
+        int[] out = new int[pointCount];
+        LttbDownsampler downsampler = new LttbDownsampler(20);
+
+        int count = downsampler.downsample(x, y, 0, pointCount, pointCount, out);
+
+        boolean keptSpike = false;
+        for (int i = 0; i < count; i++) {
+            keptSpike |= out[i] == 437;
+        }
+        assertTrue(keptSpike);
+    }
+
+    @Test
+    public void test_runGetsShareOfBudget() {
+        int pointCount = 1000;
+        float[] x = new float[pointCount];
+        float[] y = new float[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            x[i] = i;
+            y[i] = i % 7;
+        }
+        int[] out = new int[pointCount];
+        LttbDownsampler downsampler = new LttbDownsampler(100);
+
+        // the run covers the first half of a graph twice as wide as the points
+        int count = downsampler.downsample(x, y, 0, pointCount / 2, 2 * pointCount, out);
+
+        assertTrue(count < 50);
+        assertEquals(pointCount / 2 - 1, out[count - 1]);
+    }
+}
@@ -0,0 +1,62 @@
+package com.robinhood.spark;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class PixelColumnDownsamplerTest {
+    private final PixelColumnDownsampler downsampler = new PixelColumnDownsampler();
+
+    @Test
+    public void test_keepsFirstMinMaxLastPerColumn() {
+        // two columns of four points each, then a lone point in a third column
+        float[] x = {0.0f, 0.2f, 0.5f, 0.9f, 1.0f, 1.1f, 1.2f, 1.3f, 2.5f};
+        float[] y = {5, 9, 1, 4, 3, 3, 8, 0, 7};
+        int[] out = new int[x.length];
+
+        int count = downsampler.downsample(x, y, 0, x.length, 100, out);
+
+        // column 0: first=0, min=2, max=1, last=3; column 1: first=4, max=6, min=7=last
+        int[] expected = {0, 1, 2, 3, 4, 6, 7, 8};
+        assertEquals(expected.length, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], out[i]);
+        }
+    }
+
+    @Test
+    public void test_respectsRange() {
+        float[] x = {0, 0.5f, 1, 1.5f, 2};
+        float[] y = {0, 1, 2, 3, 4};
+        int[] out = new int[x.length];
+
+        int count = downsampler.downsample(x, y, 2, 4, 100, out);
+
+        assertEquals(2, count);
+        assertEquals(2, out[0]);
+        assertEquals(3, out[1]);
+    }
+
+    @Test
+    public void test_denseData_reducesToFourPerColumn() {
+        int pointCount = 100000;
+        int columns = 100;
+        float[] x = new float[pointCount];
+        float[] y = new float[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            x[i] = (float) i * columns / pointCount;
+            y[i] = (float) Math.sin(i);
+        }
+        int[] out = new int[pointCount];
+
+        int count = downsampler.downsample(x, y, 0, pointCount, 100, out);
+
+        assertTrue(count <= 4 * columns);
+        assertEquals(0, out[0]);
+        assertEquals(pointCount - 1, out[count - 1]);
+        for (int i = 1; i < count; i++) {
+            assertTrue(out[i] > out[i - 1]);
+        }
+    }
+}
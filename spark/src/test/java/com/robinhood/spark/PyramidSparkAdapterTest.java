@@ -0,0 +1,205 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class PyramidSparkAdapterTest {
+    private TestAdapter source;
+
+    @Before
+    public void setup() {
+        source = new TestAdapter();
+    }
+
+    @Test
+    public void test_levelCount() {
+        source.setYData(new float[8]);
+        assertEquals(3, createPyramid().getLevelCount());
+
+        source.setYData(new float[9]);
+        assertEquals(4, createPyramid().getLevelCount());
+
+        source.setYData(new float[1]);
+        assertEquals(0, createPyramid().getLevelCount());
+    }
+
+    @Test
+    public void test_getLevel_matchesPointsPerPixel() {
+        source.setYData(new float[1024]);
+        final PyramidSparkAdapter pyramid = createPyramid();
+
+        // few enough points to draw them all
+        assertEquals(0, pyramid.getLevel(0, 1024, 512));
+        // two buckets per pixel, of 4 points each
+        assertEquals(2, pyramid.getLevel(0, 1024, 128));
+        // or of 16 points
+        assertEquals(4, pyramid.getLevel(0, 1024, 32));
+    }
+
+    @Test
+    public void test_getPoints_keepsBucketExtremes() {
+        source.setYData(new float[] {5, 1, 9, 4, 3, 8, 2, 6, 7});
+        final PyramidSparkAdapter pyramid = createPyramid();
+
+        // buckets of 4: [5,1,9,4] [3,8,2,6] [7], plus both ends
+        assertPoints(pyramid, 2, 0, 9, 0, 1, 2, 5, 6, 8);
+        // buckets of 2: [5,1] [9,4] [3,8] [2,6] [7]
+        assertPoints(pyramid, 1, 0, 9, 0, 1, 2, 3, 4, 5, 6, 7, 8);
+        // the first bucket's extremes fall before the start of the range
+        assertPoints(pyramid, 2, 3, 9, 3, 5, 6, 8);
+    }
+
+    @Test
+    public void test_snapshot_copiesLevelPoints() {
+        source.setYData(new float[] {5, 1, 9, 4, 3, 8, 2, 6, 7});
+        final SparkSnapshot snapshot = createPyramid().snapshot(2, 0, 9);
+
+        // the points of test_getPoints_keepsBucketExtremes, still pointing at their source items
+        assertEquals(6, snapshot.getCount());
+        assertEquals(5, snapshot.getSourceIndex(3));
+        assertEquals(5f, snapshot.getX(3));
+        assertEquals(8f, snapshot.getY(3));
+        assertEquals(8f, snapshot.getItem(3));
+    }
+
+    @Test
+    public void test_getPoints_keepsEventsAndPathTypeChanges() {
+        final TestAdapter source = new TestAdapter() {
+            @Override
+            protected boolean isEvent(int index) {
+                return index == 3;
+            }
+
+            @Override
+            protected SparkPathType getPathType(int index) {
+                return index < 10 ? TestPathType.SOLID : TestPathType.DASHED;
+            }
+        };
+        source.setYData(new float[16]);
+        final PyramidSparkAdapter pyramid = new PyramidSparkAdapter(source);
+
+        // every bucket is flat, so its extremes are its first two points
+        assertPoints(pyramid, 3, 0, 16, 0, 1, 3, 8, 9, 10, 15);
+    }
+
+    @Test
+    public void test_dataBounds() {
+        source.setXData(new float[] {10, 11, 12, 13, 14});
+        source.setYData(new float[] {5, -3, 9, 4, 2});
+        final RectF bounds = createPyramid().getDataBounds();
+
+        assertEquals(10f, bounds.left);
+        assertEquals(-3f, bounds.top);
+        assertEquals(14f, bounds.right);
+        assertEquals(9f, bounds.bottom);
+    }
+
+    @Test
+    public void test_dataBounds_range() {
+        final Random random = new Random(3);
+        final float[] yData = new float[300];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = random.nextFloat();
+        }
+        source.setYData(yData);
+        final PyramidSparkAdapter pyramid = createPyramid();
+
+        for (int n = 0; n < 50; n++) {
+            final int from = random.nextInt(yData.length);
+            final int to = from + 1 + random.nextInt(yData.length - from);
+            float minY = Float.MAX_VALUE;
+            float maxY = -Float.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                minY = Math.min(minY, yData[i]);
+                maxY = Math.max(maxY, yData[i]);
+            }
+
+            final RectF bounds = pyramid.getDataBounds(from, to);
+            assertEquals((float) from, bounds.left);
+            assertEquals((float) to - 1, bounds.right);
+            assertEquals(minY, bounds.top);
+            assertEquals(maxY, bounds.bottom);
+        }
+    }
+
+    @Test
+    public void test_extend_matchesFullBuild() {
+        final Random random = new Random(7);
+        final float[] yData = new float[1000];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = random.nextFloat();
+        }
+
+        source.setYData(Arrays.copyOf(yData, 3));
+        final PyramidSparkAdapter pyramid = createPyramid();
+        for (int count : new int[] {4, 100, 257, 1000, 600}) {
+            source.setYData(Arrays.copyOf(yData, count));
+            pyramid.extend();
+
+            final PyramidSparkAdapter expected = createPyramid();
+            assertEquals(expected.getLevelCount(), pyramid.getLevelCount());
+            assertEquals(expected.getDataBounds().top, pyramid.getDataBounds().top);
+            assertEquals(expected.getDataBounds().bottom, pyramid.getDataBounds().bottom);
+            for (int level = 0; level <= expected.getLevelCount(); level++) {
+                assertTrue(Arrays.equals(getPoints(expected, level, 0, count),
+                        getPoints(pyramid, level, 0, count)));
+            }
+        }
+    }
+
+    @Test
+    public void test_getCount_ignoresUnnotifiedPoints() {
+        source.setYData(new float[] {5, 1, 9, 4, 3, 8, 2, 6, 7});
+        final PyramidSparkAdapter pyramid = createPyramid();
+
+        // points written to the source, whose notification hasn't arrived yet
+        source.setYData(new float[] {5, 1, 9, 4, 3, 8, 2, 6, 7, 20, -20, 30, -30});
+        assertEquals(9, pyramid.getCount());
+
+        // reading every level up to the count only sees the points the pyramid was built from
+        for (int level = 0; level <= pyramid.getLevelCount(); level++) {
+            for (int index : getPoints(pyramid, level, 0, pyramid.getCount())) {
+                assertTrue(index < 9);
+            }
+        }
+        final RectF bounds = pyramid.getDataBounds();
+        assertEquals(1f, bounds.top);
+        assertEquals(9f, bounds.bottom);
+
+        pyramid.extend();
+        assertEquals(13, pyramid.getCount());
+        assertEquals(-30f, pyramid.getDataBounds().top);
+    }
+
+    private PyramidSparkAdapter createPyramid() {
+        return new PyramidSparkAdapter(source) {
+            @Override
+            RectF createRectF(float left, float top, float right, float bottom) {
+                return TestAdapter.createMockRectF(left, top, right, bottom);
+            }
+        };
+    }
+
+    private static int[] getPoints(PyramidSparkAdapter pyramid, int level, int from, int to) {
+        final int[] out = new int[pyramid.getMaxPointCount(level, from, to)];
+        return Arrays.copyOf(out, pyramid.getPoints(level, from, to, out));
+    }
+
+    private static void assertPoints(PyramidSparkAdapter pyramid, int level, int from, int to,
+            int... expected) {
+        assertEquals(Arrays.toString(expected),
+                Arrays.toString(getPoints(pyramid, level, from, to)));
+    }
+
+    private enum TestPathType implements SparkPathType {
+        SOLID, DASHED
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
 
 public class ScaleHelperUnitTest {
     private RectF contentRect;
@@ -197,4 +199,64 @@ public class ScaleHelperUnitTest {
         assertEquals(50f, x2);
         assertEquals(0f, y2);
     }
+
+    @Test
+    public void testBulkScaleMatchesSinglePoints() {
+        testAdapter.setYData(new float[] {0, 13, 2, 40, 4});
+        testAdapter.setXData(new float[] {0, 1, 7, 9, 12});
+        SparkView.ScaleHelper scaleHelper = new SparkView.ScaleHelper(testAdapter, contentRect, 3,
+                false);
+
+        float[] xs = new float[5];
+        float[] ys = new float[5];
+        testAdapter.copyX(xs, 0, 5);
+        testAdapter.copyY(ys, 0, 5);
+        scaleHelper.scaleX(xs, 5);
+        scaleHelper.scaleY(ys, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(scaleHelper.getX(testAdapter.getX(i)), xs[i]);
+            assertEquals(scaleHelper.getY(testAdapter.getY(i)), ys[i]);
+        }
+    }
+
+    @Test
+    public void testHasBounds() {
+        testAdapter.setYData(new float[] {0, 10, 5});
+        SparkView.ScaleHelper scaleHelper = new SparkView.ScaleHelper(testAdapter, contentRect, 0,
+                false);
+
+        // changing a point within the existing bounds keeps them
+        testAdapter.setYData(new float[] {0, 10, 7});
+        assertTrue(scaleHelper.hasBounds(testAdapter.getDataBounds()));
+
+        // a point outside the existing bounds changes them
+        testAdapter.setYData(new float[] {0, 10, 11});
+        assertFalse(scaleHelper.hasBounds(testAdapter.getDataBounds()));
+    }
+
+    @Test
+    public void testHasBounds_flat() {
+        // flat data is widened to be drawn, but the bounds it was created for are compared
+        testAdapter.setYData(new float[] {5, 5, 5});
+        SparkView.ScaleHelper scaleHelper = new SparkView.ScaleHelper(testAdapter, contentRect, 0,
+                false);
+        assertTrue(scaleHelper.hasBounds(testAdapter.getDataBounds()));
+
+        testAdapter.setYData(new float[] {5, 5, 5.5f});
+        assertFalse(scaleHelper.hasBounds(testAdapter.getDataBounds()));
+    }
+
+    @Test
+    public void testContainsBounds() {
+        testAdapter.setYData(new float[] {0, 10, 5});
+        SparkView.ScaleHelper scaleHelper = new SparkView.ScaleHelper(testAdapter, contentRect, 0,
+                false);
+
+        assertTrue(scaleHelper.containsBounds(TestAdapter.createMockRectF(1, 0, 2, 10)));
+        assertTrue(scaleHelper.containsBounds(TestAdapter.createMockRectF(2, 3, 2, 4)));
+        assertFalse(scaleHelper.containsBounds(TestAdapter.createMockRectF(1, 0, 3, 10)));
+        assertFalse(scaleHelper.containsBounds(TestAdapter.createMockRectF(1, -1, 2, 10)));
+        assertFalse(scaleHelper.containsBounds(TestAdapter.createMockRectF(1, 0, 2, 11)));
+    }
 }
@@ -5,6 +5,7 @@ import android.graphics.RectF;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 
 public class SparkAdapterUnitTest {
 
@@ -45,4 +46,105 @@ public class SparkAdapterUnitTest {
         assertEquals(Float.MAX_VALUE, bounds.top);
         assertEquals(-Float.MAX_VALUE, bounds.bottom);
     }
+
+    @Test
+    public void test_getDataBounds_range() {
+        TestAdapter testAdapter = new TestAdapter();
+        testAdapter.setYData(new float[] {0, 500, 100, -20, 40});
+        RectF bounds = testAdapter.getDataBounds(2, 4);
+
+        assertEquals(2f, bounds.left);
+        assertEquals(3f, bounds.right);
+        assertEquals(-20f, bounds.top);
+        assertEquals(100f, bounds.bottom);
+    }
+
+    @Test
+    public void test_copyXY_default() {
+        TestAdapter testAdapter = new TestAdapter();
+        testAdapter.setYData(new float[] {3, 4, 5, 6});
+        float[] xs = new float[2];
+        float[] ys = new float[2];
+        testAdapter.copyX(xs, 1, 2);
+        testAdapter.copyY(ys, 1, 2);
+
+        assertEquals(1f, xs[0]);
+        assertEquals(2f, xs[1]);
+        assertEquals(4f, ys[0]);
+        assertEquals(5f, ys[1]);
+    }
+
+    @Test
+    public void test_getDataBounds_floatArrayAdapter() {
+        FloatArraySparkAdapter adapter = new FloatArraySparkAdapter(
+                new float[] {50, 99, 100}, new float[] {0, 500, 100}) {
+            @Override
+            RectF createRectF(float left, float top, float right, float bottom) {
+                return TestAdapter.createMockRectF(left, top, right, bottom);
+            }
+        };
+        RectF bounds = adapter.getDataBounds();
+
+        assertEquals(50f, bounds.left);
+        assertEquals(100f, bounds.right);
+        assertEquals(0f, bounds.top);
+        assertEquals(500f, bounds.bottom);
+    }
+
+    @Test
+    public void test_copyXY_floatArrayAdapter() {
+        FloatArraySparkAdapter adapter = new FloatArraySparkAdapter(new float[] {7, 8, 9});
+        float[] xs = new float[3];
+        float[] ys = new float[3];
+        adapter.copyX(xs, 0, 3);
+        adapter.copyY(ys, 0, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(adapter.getX(i), xs[i]);
+            assertEquals(adapter.getY(i), ys[i]);
+        }
+    }
+
+    @Test
+    public void test_getDataBounds_reusesRectF() {
+        TestAdapter testAdapter = new TestAdapter();
+        testAdapter.setYData(new float[] {0, 1});
+        RectF first = testAdapter.getDataBounds();
+
+        testAdapter.setYData(new float[] {-3, 4});
+        RectF second = testAdapter.getDataBounds();
+
+        assertSame(first, second);
+        assertEquals(-3f, second.top);
+        assertEquals(4f, second.bottom);
+    }
+
+    @Test
+    public void test_getDataBounds_incremental() {
+        TestAdapter testAdapter = new TestAdapter();
+        testAdapter.setIncrementalDataBounds(true);
+        testAdapter.setYData(new float[] {0, 5});
+        RectF bounds = testAdapter.getDataBounds();
+        assertEquals(0f, bounds.top);
+        assertEquals(5f, bounds.bottom);
+
+        // appended points are folded into the running extremes
+        testAdapter.setYData(new float[] {0, 5, 10});
+        bounds = testAdapter.getDataBounds();
+        assertEquals(0f, bounds.left);
+        assertEquals(2f, bounds.right);
+        assertEquals(0f, bounds.top);
+        assertEquals(10f, bounds.bottom);
+
+        // existing points are not rescanned without a notification...
+        testAdapter.setYData(new float[] {1, 5, 10});
+        bounds = testAdapter.getDataBounds();
+        assertEquals(0f, bounds.top);
+
+        // ...unless the count shrinks
+        testAdapter.setYData(new float[] {1, 5});
+        bounds = testAdapter.getDataBounds();
+        assertEquals(1f, bounds.top);
+        assertEquals(5f, bounds.bottom);
+    }
 }
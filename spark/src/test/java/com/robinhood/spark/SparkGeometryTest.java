@@ -0,0 +1,257 @@
+package com.robinhood.spark;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SparkGeometryTest {
+    private SparkGeometry geometry;
+    private TestAdapter adapter;
+
+    @Before
+    public void setup() {
+        // by default, all tests are on a canvas of 100 x 100
+        geometry = new SparkGeometry(TestAdapter.createMockRectF(0, 0, 100, 100),
+                new TestSparkPaths(), new TestPath());
+        geometry.width = 100;
+        geometry.height = 100;
+        geometry.pathTypes = new SparkPathType[] {SparkPathType.Legacy.INSTANCE};
+
+        adapter = new TestAdapter();
+        adapter.setYData(new float[] {1, 2, 3});
+    }
+
+    @Test
+    public void test_append_fixedBounds() {
+        adapter.setDataBounds(0, 0, 10, 10);
+        assertTrue(geometry.populate(adapter));
+
+        adapter.setYData(new float[] {1, 2, 3, 4, 5});
+        assertTrue(geometry.append(adapter, 2));
+
+        assertEquals(5, geometry.xPointCount);
+        assertEquals(4, geometry.xPointIndices[4]);
+        assertEquals(40f, geometry.xPoints[4]);
+        final SparkPath.SparkPathSegment segment = getLastSegment();
+        // the first point is also drawn as a line to itself
+        assertEquals(6, segment.getPointCount());
+        assertEquals(40f, segment.getX(5));
+        assertEquals(50f, segment.getY(5));
+    }
+
+    @Test
+    public void test_append_growingBounds() {
+        // with the default bounds and X values, every point appended widens the X range, so the
+        // points already drawn move and the graph is populated again
+        assertTrue(geometry.populate(adapter));
+
+        adapter.setYData(new float[] {1, 2, 3, 4});
+        assertFalse(geometry.append(adapter, 1));
+    }
+
+    @Test
+    public void test_append_outsideFixedBounds() {
+        adapter.setDataBounds(0, 0, 10, 10);
+        assertTrue(geometry.populate(adapter));
+
+        adapter.setYData(new float[] {1, 2, 3, 11});
+        assertFalse(geometry.append(adapter, 1));
+    }
+
+    @Test
+    public void test_append_onlyReadsAppendedBounds() {
+        final int[] fullBoundsReads = new int[1];
+        final TestAdapter adapter = new TestAdapter() {
+            @Override
+            public RectF getDataBounds() {
+                fullBoundsReads[0]++;
+                return TestAdapter.createMockRectF(0, 0, 10, 10);
+            }
+        };
+        adapter.setYData(new float[] {1, 2, 3});
+        assertTrue(geometry.populate(adapter));
+
+        adapter.setYData(new float[] {1, 2, 3, 4});
+        assertTrue(geometry.append(adapter, 1));
+        assertEquals(1, fullBoundsReads[0]);
+    }
+
+    @Test
+    public void test_append_notAtEnd() {
+        adapter.setDataBounds(0, 0, 10, 10);
+        assertTrue(geometry.populate(adapter));
+
+        // the points drawn don't end where the appended points start
+        adapter.setYData(new float[] {1, 2, 3, 4, 5});
+        assertFalse(geometry.append(adapter, 1));
+    }
+
+    @Test
+    public void test_append_notPopulated() {
+        adapter.setDataBounds(0, 0, 10, 10);
+        assertFalse(geometry.append(adapter, 1));
+    }
+
+    @Test
+    public void test_updateRange_fixedBounds() {
+        adapter.setDataBounds(0, 0, 10, 10);
+        assertTrue(geometry.populate(adapter));
+
+        adapter.setYData(new float[] {1, 2, 7});
+        assertTrue(geometry.updateRange(adapter, 2, 1));
+
+        assertEquals(3, geometry.xPointCount);
+        final SparkPath.SparkPathSegment segment = getLastSegment();
+        assertEquals(4, segment.getPointCount());
+        assertEquals(20f, segment.getX(3));
+        assertEquals(30f, segment.getY(3));
+        assertEquals(1, geometry.sparkPaths.paths.get(SparkPathType.Legacy.INSTANCE)
+                .segments.size());
+    }
+
+    @Test
+    public void test_updateRange_growingBounds() {
+        assertTrue(geometry.populate(adapter));
+
+        // a new maximum changes the Y scale of every point
+        adapter.setYData(new float[] {1, 2, 7});
+        assertFalse(geometry.updateRange(adapter, 2, 1));
+    }
+
+    @Test
+    public void test_updateRange_countChanged() {
+        adapter.setDataBounds(0, 0, 10, 10);
+        assertTrue(geometry.populate(adapter));
+
+        adapter.setYData(new float[] {1, 2, 3, 4});
+        assertFalse(geometry.updateRange(adapter, 2, 1));
+    }
+
+    @Test
+    public void test_populate_downsamplesVisibleSliceByItsCount() {
+        final float[] yData = new float[1000];
+        for (int i = 0; i < yData.length; i++) {
+            yData[i] = i % 7;
+        }
+        adapter.setYData(yData);
+        final int[] downsampleCalls = new int[1];
+        geometry.downsampler = new SparkDownsampler() {
+            @Override
+            public boolean shouldDownsample(int count, float width) {
+                return count > width;
+            }
+
+            @Override
+            public int downsample(float[] x, float[] y, int from, int to, float width, int[] out) {
+                downsampleCalls[0]++;
+                for (int i = from; i < to; i++) {
+                    out[i - from] = i;
+                }
+                return to - from;
+            }
+        };
+
+        // far more points than pixels
+        assertTrue(geometry.populate(adapter));
+        assertEquals(1, downsampleCalls[0]);
+
+        // but zoomed in to a few of them, every point is drawn as it is
+        geometry.visibleMinX = 10;
+        geometry.visibleMaxX = 20;
+        assertTrue(geometry.populate(adapter));
+        assertEquals(1, downsampleCalls[0]);
+        assertEquals(13, geometry.xPointCount);
+    }
+
+    @Test
+    public void test_draw_afterSwappingAdapters() {
+        assertTrue(geometry.populate(adapter));
+
+        // the new adapter draws another path type
+        final TestAdapter otherAdapter = new OtherPathTypeAdapter();
+        otherAdapter.setYData(new float[] {1, 2, 3});
+        final SparkPathType[] otherPathTypes = new SparkPathType[] {OtherPathType.INSTANCE};
+        geometry.pathTypes = otherPathTypes;
+        assertTrue(geometry.populate(otherAdapter));
+
+        // the emptied path of the old adapter's path type is skipped
+        final Canvas canvas = mock(Canvas.class);
+        SparkView.drawPaths(canvas, geometry.sparkPaths, otherPathTypes, 0, createPaints(2), null,
+                Float.NaN, 0);
+        verify(canvas, times(1)).drawPath(any(Path.class), any(Paint.class));
+
+        // events built for path types the view's styling no longer has are skipped too
+        geometry.eventPaths = new Path[] {new TestPath()};
+        SparkView.drawEvents(canvas, geometry, new SparkPathType[] {SparkPathType.Legacy.INSTANCE},
+                0, createPaints(2));
+        verify(canvas, times(1)).drawPath(any(Path.class), any(Paint.class));
+
+        // swapping back draws the old path type again
+        geometry.pathTypes = new SparkPathType[] {SparkPathType.Legacy.INSTANCE};
+        assertTrue(geometry.populate(adapter));
+        SparkView.drawPaths(canvas, geometry.sparkPaths, geometry.pathTypes, 0, createPaints(2),
+                null, Float.NaN, 0);
+        verify(canvas, times(2)).drawPath(any(Path.class), any(Paint.class));
+    }
+
+    private SparkPath.SparkPathSegment getLastSegment() {
+        final List<SparkPath.SparkPathSegment> segments =
+                geometry.sparkPaths.paths.get(SparkPathType.Legacy.INSTANCE).segments;
+        return segments.get(segments.size() - 1);
+    }
+
+    private static Paint[] createPaints(int count) {
+        final Paint[] paints = new Paint[count];
+        for (int i = 0; i < count; i++) {
+            paints[i] = mock(Paint.class);
+        }
+        return paints;
+    }
+
+    private enum OtherPathType implements SparkPathType {
+        INSTANCE
+    }
+
+    private static class OtherPathTypeAdapter extends TestAdapter {
+        @Override
+        protected SparkPathType getPathType(int index) {
+            return OtherPathType.INSTANCE;
+        }
+
+        @Override
+        protected Set<SparkPathType> getSupportedPathTypes() {
+            return Collections.<SparkPathType>singleton(OtherPathType.INSTANCE);
+        }
+    }
+
+    /**
+     * Paths whose segments only record their vertices.
+     */
+    private static class TestSparkPaths extends SparkPaths {
+        @Override
+        SparkPath createPath(final SparkPathType pathType) {
+            return new SparkPath(pathType) {
+                @Override
+                SparkPath.SparkPathSegment createSegment(int index) {
+                    return new TestSparkPathSegment(pathType, index);
+                }
+            };
+        }
+    }
+}
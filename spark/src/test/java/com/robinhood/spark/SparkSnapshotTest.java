@@ -0,0 +1,102 @@
+package com.robinhood.spark;
+
+import java.util.ConcurrentModificationException;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class SparkSnapshotTest {
+
+    @Test
+    public void test_copiesPointsPathTypesAndEvents() {
+        final TestAdapter adapter = new TestAdapter() {
+            @Override
+            protected SparkPathType getPathType(int index) {
+                return index < 2 || index > 4 ? TestPathType.SOLID : TestPathType.DASHED;
+            }
+
+            @Override
+            protected boolean isEvent(int index) {
+                return index == 1 || index == 4;
+            }
+
+            @Override
+            protected boolean shouldSnapToEvent(int index) {
+                return index == 4;
+            }
+        };
+        adapter.setYData(new float[] {3, 1, 4, 1, 5, 9});
+        final SparkSnapshot snapshot = SparkSnapshot.of(adapter);
+
+        // later changes to the adapter don't show up in the snapshot
+        adapter.setYData(new float[] {2, 7});
+
+        assertEquals(6, snapshot.getCount());
+        assertEquals(5f, snapshot.getX(5));
+        assertEquals(9f, snapshot.getY(5));
+
+        final float[] y = new float[3];
+        snapshot.copyY(y, 2, 3);
+        assertEquals(4f, y[0]);
+        assertEquals(5f, y[2]);
+
+        assertEquals(TestPathType.SOLID, snapshot.getPathType(1));
+        assertEquals(TestPathType.DASHED, snapshot.getPathType(2));
+        assertEquals(TestPathType.DASHED, snapshot.getPathType(4));
+        assertEquals(TestPathType.SOLID, snapshot.getPathType(5));
+
+        assertFalse(snapshot.isEvent(0));
+        assertTrue(snapshot.isEvent(1));
+        assertTrue(snapshot.isEvent(4));
+        assertFalse(snapshot.shouldSnapToEvent(1));
+        assertTrue(snapshot.shouldSnapToEvent(4));
+    }
+
+    @Test
+    public void test_snapshot_copiesCurrentData() {
+        final TestAdapter adapter = new TestAdapter();
+        adapter.setYData(new float[] {1, 2});
+        final SparkSnapshot snapshot = adapter.snapshot();
+
+        // even without a notification, the next snapshot sees the new data
+        adapter.setYData(new float[] {1, 2, 3});
+        assertEquals(2, snapshot.getCount());
+        assertEquals(3, adapter.snapshot().getCount());
+        assertSame(snapshot, snapshot.snapshot());
+    }
+
+    @Test
+    public void test_getItem_looksUpTheAdapter() {
+        final TestAdapter adapter = new TestAdapter();
+        adapter.setYData(new float[] {1, 2});
+        final SparkSnapshot snapshot = adapter.snapshot();
+
+        assertEquals(2f, snapshot.getItem(1));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void test_getItem_afterDataChanged() {
+        final TestAdapter adapter = new TestAdapter();
+        adapter.setYData(new float[] {1, 2});
+        final SparkSnapshot snapshot = adapter.snapshot();
+
+        adapter.setYData(new float[] {3, 4});
+        adapter.markDataChanged();
+        snapshot.getItem(1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void test_getY_outOfBounds() {
+        final TestAdapter adapter = new TestAdapter();
+        adapter.setYData(new float[] {1, 2});
+        SparkSnapshot.of(adapter).getY(2);
+    }
+
+    private enum TestPathType implements SparkPathType {
+        SOLID, DASHED
+    }
+}
@@ -0,0 +1,103 @@
+package com.robinhood.spark;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class SparkThumbnailRendererTest {
+    private final List<Runnable> renders = new ArrayList<>();
+    private SparkThumbnailRenderer renderer;
+    private TestAdapter adapter;
+
+    @Before
+    public void setup() {
+        // renders are queued rather than run, so they stay pending
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                renders.add(runnable);
+            }
+        };
+        renderer = new SparkThumbnailRenderer(mock(Context.class), 1 << 20, executor, executor);
+        renderer.setPaintProvider(mock(SparkPaintProvider.class));
+
+        adapter = new TestAdapter();
+        adapter.setYData(new float[] {1, 2, 3});
+    }
+
+    @Test
+    public void test_key_equality() {
+        final SparkThumbnailRenderer.Key key = createKey(adapter, 1, 10, 20, 0);
+
+        final SparkThumbnailRenderer.Key same = createKey(adapter, 1, 10, 20, 0);
+        assertTrue(key.equals(same));
+        assertEquals(key.hashCode(), same.hashCode());
+
+        assertFalse(key.equals(createKey(new TestAdapter(), 1, 10, 20, 0)));
+        assertFalse(key.equals(createKey(adapter, 2, 10, 20, 0)));
+        assertFalse(key.equals(createKey(adapter, 1, 11, 20, 0)));
+        assertFalse(key.equals(createKey(adapter, 1, 10, 21, 0)));
+        assertFalse(key.equals(createKey(adapter, 1, 10, 20, 1)));
+    }
+
+    @Test
+    public void test_key_isOutdatedByNewerData() {
+        final SparkThumbnailRenderer.Key key = createKey(adapter, 1, 10, 20, 0);
+
+        assertTrue(key.isOutdatedBy(createKey(adapter, 2, 10, 20, 0)));
+        // other sizes of the same data are still wanted, as are other adapters
+        assertFalse(key.isOutdatedBy(createKey(adapter, 1, 30, 20, 0)));
+        assertFalse(key.isOutdatedBy(createKey(new TestAdapter(), 2, 10, 20, 0)));
+    }
+
+    @Test
+    public void test_render_deduplicatesPending() {
+        renderer.render(adapter, 10, 20, mock(SparkThumbnailRenderer.Callback.class));
+        renderer.render(adapter, 10, 20, mock(SparkThumbnailRenderer.Callback.class));
+        assertEquals(1, renders.size());
+
+        // another size is another thumbnail
+        renderer.render(adapter, 30, 20, mock(SparkThumbnailRenderer.Callback.class));
+        assertEquals(2, renders.size());
+
+        // and so is the same size once the data changed
+        adapter.markDataChanged();
+        renderer.render(adapter, 10, 20, mock(SparkThumbnailRenderer.Callback.class));
+        assertEquals(3, renders.size());
+    }
+
+    @Test
+    public void test_render_afterStyleChange() {
+        renderer.render(adapter, 10, 20, mock(SparkThumbnailRenderer.Callback.class));
+        renderer.setPadding(4);
+        renderer.render(adapter, 10, 20, mock(SparkThumbnailRenderer.Callback.class));
+        assertEquals(2, renders.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_render_emptySize() {
+        renderer.render(adapter, 0, 20, mock(SparkThumbnailRenderer.Callback.class));
+    }
+
+    @Test
+    public void test_getCachedThumbnail_nothingRendered() {
+        assertNull(renderer.getCachedThumbnail(adapter, 10, 20));
+    }
+
+    private static SparkThumbnailRenderer.Key createKey(SparkAdapter adapter, int dataVersion,
+            int width, int height, int styleGeneration) {
+        return new SparkThumbnailRenderer.Key(
+                adapter, dataVersion, width, height, styleGeneration);
+    }
+}
@@ -1,42 +1,144 @@
 package com.robinhood.spark;
 
-import org.junit.Test;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.junit.Test;
+
 import static junit.framework.Assert.assertEquals;
 
 public class SparkViewUnitTest {
-    List<Float> points = Arrays.asList(0f, 1f, 2f, 3f);
+    float[] points = {0f, 1f, 2f, 3f};
 
     @Test
     public void test_getNearestIndex_exact() {
-        assertEquals(1, SparkView.getNearestIndex(points, 1f));
+        assertEquals(1, SparkView.getNearestIndex(points, points.length, 1f));
     }
 
     @Test
     public void test_getNearestIndex_first() {
-        assertEquals(0, SparkView.getNearestIndex(points, -1f));
+        assertEquals(0, SparkView.getNearestIndex(points, points.length, -1f));
     }
 
     @Test
     public void test_getNearestIndex_last() {
-        assertEquals(3, SparkView.getNearestIndex(points, 4f));
+        assertEquals(3, SparkView.getNearestIndex(points, points.length, 4f));
     }
 
     @Test
     public void test_getNearestIndex_down() {
-        assertEquals(2, SparkView.getNearestIndex(points, 2.1f));
+        assertEquals(2, SparkView.getNearestIndex(points, points.length, 2.1f));
     }
 
     @Test
     public void test_getNearestIndex_up() {
-        assertEquals(3, SparkView.getNearestIndex(points, 2.9f));
+        assertEquals(3, SparkView.getNearestIndex(points, points.length, 2.9f));
     }
 
     @Test
     public void test_getNearestIndex_halfway() {
-        assertEquals(3, SparkView.getNearestIndex(points, 2.5f));
+        assertEquals(3, SparkView.getNearestIndex(points, points.length, 2.5f));
+    }
+
+    @Test
+    public void test_getNearestIndex_ignoresPointsPastCount() {
+        float[] buffer = {0f, 1f, 2f, 3f, 0f, 0f};
+        assertEquals(3, SparkView.getNearestIndex(buffer, 4, 10f));
+    }
+
+    @Test
+    public void test_findFirstIndex() {
+        TestAdapter adapter = new TestAdapter();
+        adapter.setYData(new float[5]);
+        adapter.setXData(new float[] {0f, 10f, 10f, 20f, 30f});
+
+        assertEquals(0, SparkView.findFirstIndex(adapter, 5, -5f, false));
+        assertEquals(1, SparkView.findFirstIndex(adapter, 5, 10f, false));
+        assertEquals(3, SparkView.findFirstIndex(adapter, 5, 10f, true));
+        assertEquals(4, SparkView.findFirstIndex(adapter, 5, 25f, false));
+        assertEquals(5, SparkView.findFirstIndex(adapter, 5, 30f, true));
+    }
+
+    @Test
+    public void test_mergeSortedIndices() {
+        int[] a = {1, 4, 6};
+        int[] b = {0, 4, 9};
+        int[] out = new int[6];
+
+        int count = SparkView.mergeSortedIndices(a, a.length, b, b.length, out);
+
+        int[] expected = {0, 1, 4, 6, 9};
+        assertEquals(expected.length, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], out[i]);
+        }
+    }
+
+    @Test
+    public void test_clampGestureSpan() {
+        // no closer than the minimum span, no further than the whole data
+        assertEquals(4f, SparkView.clampGestureSpan(1f, 4f, 100f));
+        assertEquals(100f, SparkView.clampGestureSpan(250f, 4f, 100f));
+        assertEquals(30f, SparkView.clampGestureSpan(30f, 4f, 100f));
+    }
+
+    @Test
+    public void test_clampGestureMinX() {
+        // panned past either end of the data, the range stops at that end
+        assertEquals(10f, SparkView.clampGestureMinX(-5f, 20f, 10f, 110f));
+        assertEquals(90f, SparkView.clampGestureMinX(100f, 20f, 10f, 110f));
+        assertEquals(50f, SparkView.clampGestureMinX(50f, 20f, 10f, 110f));
+        // the whole data fits exactly
+        assertEquals(10f, SparkView.clampGestureMinX(30f, 100f, 10f, 110f));
+    }
+
+    @Test
+    public void test_getZoomedMinX_keepsFocus() {
+        // [0, 100) across 200 pixels starting at 10, zoomed in twice
+        assertEquals(25f, SparkView.getZoomedMinX(0f, 100f, 50f, 110f, 10f, 200f));
+        assertEquals(0f, SparkView.getZoomedMinX(0f, 100f, 50f, 10f, 10f, 200f));
+        assertEquals(50f, SparkView.getZoomedMinX(0f, 100f, 50f, 210f, 10f, 200f));
+
+        // the X value under the focus is the same before and after
+        final float minX = 40f;
+        final float span = 60f;
+        final float newSpan = 90f;
+        final float focusX = 70f;
+        final float before = minX + (focusX - 10f) * span / 200f;
+        final float newMinX = SparkView.getZoomedMinX(minX, span, newSpan, focusX, 10f, 200f);
+        assertEquals(before, newMinX + (focusX - 10f) * newSpan / 200f, 1e-4f);
+    }
+
+    @Test
+    public void test_drawLinesSplit() {
+        // (0,0) (10,10) (20,0) (30,10)
+        float[] lines = {0f, 0f, 10f, 10f, 10f, 10f, 20f, 0f, 20f, 0f, 30f, 10f, 0f, 0f};
+        final Paint left = new Paint();
+        final Paint right = new Paint();
+        final List<String> draws = new ArrayList<>();
+        Canvas canvas = new Canvas() {
+            @Override
+            public void drawLines(float[] pts, int offset, int count, Paint paint) {
+                draws.add((paint == left ? "left" : "right") + " lines " + offset + "+" + count);
+            }
+
+            @Override
+            public void drawLine(float startX, float startY, float stopX, float stopY,
+                    Paint paint) {
+                draws.add((paint == left ? "left" : "right") + " line "
+                        + startX + "," + startY + " " + stopX + "," + stopY);
+            }
+        };
+
+        SparkView.drawLinesSplit(canvas, lines, 12, 12f, left, 18f, right);
+
+        assertEquals(4, draws.size());
+        assertEquals("left lines 0+4", draws.get(0));
+        assertEquals("left line 10.0,10.0 12.0,8.0", draws.get(1));
+        assertEquals("right lines 8+4", draws.get(2));
+        assertEquals("right line 18.0,2.0 20.0,0.0", draws.get(3));
     }
 }
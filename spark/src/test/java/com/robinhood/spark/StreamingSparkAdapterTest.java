@@ -0,0 +1,148 @@
+package com.robinhood.spark;
+
+import android.graphics.RectF;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class StreamingSparkAdapterTest {
+    private StreamingSparkAdapter adapter;
+
+    @Before
+    public void setup() {
+        adapter = new StreamingSparkAdapter(3) {
+            @Override
+            RectF createRectF(float left, float top, float right, float bottom) {
+                return TestAdapter.createMockRectF(left, top, right, bottom);
+            }
+        };
+    }
+
+    @Test
+    public void test_push_untilFull() {
+        assertFalse(adapter.push(0, 10));
+        assertFalse(adapter.push(1, 20));
+        assertFalse(adapter.push(2, 30));
+
+        assertEquals(3, adapter.getCount());
+        assertEquals(0f, adapter.getX(0));
+        assertEquals(30f, adapter.getY(2));
+    }
+
+    @Test
+    public void test_push_evictsOldest() {
+        adapter.push(0, 10);
+        adapter.push(1, 20);
+        adapter.push(2, 30);
+        assertTrue(adapter.push(3, 40));
+        assertTrue(adapter.push(4, 50));
+
+        assertEquals(3, adapter.getCount());
+        assertEquals(2f, adapter.getX(0));
+        assertEquals(30f, adapter.getY(0));
+        assertEquals(4f, adapter.getX(2));
+        assertEquals(50f, adapter.getY(2));
+    }
+
+    @Test
+    public void test_copy_acrossWrap() {
+        for (int i = 0; i < 5; i++) {
+            adapter.push(i, i * 10);
+        }
+
+        float[] xs = new float[3];
+        float[] ys = new float[3];
+        adapter.copyX(xs, 0, 3);
+        adapter.copyY(ys, 0, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(adapter.getX(i), xs[i]);
+            assertEquals(adapter.getY(i), ys[i]);
+        }
+    }
+
+    @Test
+    public void test_push_changesDataVersion() {
+        final int version = adapter.getDataVersion();
+        adapter.push(0, 10);
+
+        // the data changed before any notification was sent
+        assertFalse(version == adapter.getDataVersion());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void test_getY_outOfRange() {
+        adapter.push(0, 10);
+        adapter.getY(1);
+    }
+
+    @Test
+    public void test_getDataBounds_rolling() {
+        adapter.push(0, 100);
+        adapter.push(1, -5);
+        adapter.push(2, 7);
+
+        RectF bounds = adapter.getDataBounds();
+        assertEquals(0f, bounds.left);
+        assertEquals(2f, bounds.right);
+        assertEquals(-5f, bounds.top);
+        assertEquals(100f, bounds.bottom);
+
+        // evict the max, then the min
+        adapter.push(3, 8);
+        bounds = adapter.getDataBounds();
+        assertEquals(1f, bounds.left);
+        assertEquals(3f, bounds.right);
+        assertEquals(-5f, bounds.top);
+        assertEquals(8f, bounds.bottom);
+
+        adapter.push(4, 6);
+        bounds = adapter.getDataBounds();
+        assertEquals(6f, bounds.top);
+        assertEquals(8f, bounds.bottom);
+    }
+
+    @Test
+    public void test_getDataBounds_matchesFullScan() {
+        StreamingSparkAdapter large = new StreamingSparkAdapter(50) {
+            @Override
+            RectF createRectF(float left, float top, float right, float bottom) {
+                return TestAdapter.createMockRectF(left, top, right, bottom);
+            }
+        };
+        TestAdapter reference = new TestAdapter();
+        float[] window = new float[50];
+
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            large.push(i, random.nextFloat() * 1000);
+            for (int j = 0; j < large.getCount(); j++) {
+                window[j] = large.getY(j);
+            }
+            reference.setYData(Arrays.copyOf(window, large.getCount()));
+
+            RectF expected = reference.getDataBounds();
+            RectF actual = large.getDataBounds();
+            assertEquals(expected.top, actual.top);
+            assertEquals(expected.bottom, actual.bottom);
+        }
+    }
+
+    @Test
+    public void test_clear() {
+        adapter.push(0, 1);
+        adapter.push(1, 2);
+        adapter.clear();
+
+        assertEquals(0, adapter.getCount());
+        RectF bounds = adapter.getDataBounds();
+        assertEquals(Float.MAX_VALUE, bounds.top);
+        assertEquals(-Float.MAX_VALUE, bounds.bottom);
+    }
+}
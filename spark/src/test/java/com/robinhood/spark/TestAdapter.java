@@ -3,6 +3,9 @@ package com.robinhood.spark;
 import android.graphics.RectF;
 import android.support.annotation.NonNull;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -58,6 +61,16 @@ public class TestAdapter extends SparkAdapter {
                 : dataBounds;
     }
 
+    @Override
+    protected SparkPathType getPathType(int index) {
+        return SparkPathType.Legacy.INSTANCE;
+    }
+
+    @Override
+    protected Set<SparkPathType> getSupportedPathTypes() {
+        return Collections.<SparkPathType>singleton(SparkPathType.Legacy.INSTANCE);
+    }
+
     @Override
     RectF createRectF(float left, float top, float right, float bottom) {
         return createMockRectF(left, top, right, bottom);
@@ -0,0 +1,25 @@
+package com.robinhood.spark;
+
+import android.graphics.Path;
+
+/**
+ * A path that ignores what is drawn into it, since paths can't be drawn in unit tests.
+ */
+public class TestPath extends Path {
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
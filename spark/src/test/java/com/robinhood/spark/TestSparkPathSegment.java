@@ -0,0 +1,33 @@
+package com.robinhood.spark;
+
+import android.graphics.Path;
+
+/**
+ * A segment that only records its vertices, since paths can't be drawn in unit tests.
+ */
+public class TestSparkPathSegment extends SparkPath.SparkPathSegment {
+
+    public TestSparkPathSegment(SparkPathType pathType, int indexInSparkPath) {
+        super(pathType, indexInSparkPath);
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        addVertex(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        addVertex(x, y);
+    }
+
+    @Override
+    public void reset() {
+        clearVertices();
+    }
+
+    @Override
+    Path createFillPath() {
+        return new TestPath();
+    }
+}
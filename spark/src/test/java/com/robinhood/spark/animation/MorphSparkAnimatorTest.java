@@ -0,0 +1,69 @@
+package com.robinhood.spark.animation;
+
+import com.robinhood.spark.SparkPath;
+import com.robinhood.spark.SparkPathType;
+import com.robinhood.spark.TestSparkPathSegment;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.robinhood.spark.Allocations.assertDoesNotAllocate;
+import static junit.framework.Assert.assertEquals;
+
+public class MorphSparkAnimatorTest {
+    private SparkPath.SparkPathSegment[] segments;
+    private float[][] xPoints;
+    private float[][] yPoints;
+    private float[][] oldYPoints;
+
+    @Before
+    public void setup() {
+        segments = new SparkPath.SparkPathSegment[] {
+                new TestSparkPathSegment(SparkPathType.Legacy.INSTANCE, 0),
+                new TestSparkPathSegment(SparkPathType.Legacy.INSTANCE, 1)
+        };
+        xPoints = new float[][] {{0, 1, 2}, {3, 4, 5, 6}};
+        yPoints = new float[][] {{10, 20, 30}, {40, 50, 60, 70}};
+        // the second segment has grown since the last animation, and the first is new
+        oldYPoints = new float[][] {null, {0, 10, 20}};
+    }
+
+    @Test
+    public void test_morphSegments() {
+        MorphSparkAnimator.morphSegments(segments, xPoints, yPoints, oldYPoints, 0.5f);
+
+        assertEquals(3, segments[0].getPointCount());
+        assertEquals(2f, segments[0].getX(2));
+        assertEquals(15f, segments[0].getY(2));
+
+        assertEquals(4, segments[1].getPointCount());
+        assertEquals(3f, segments[1].getX(0));
+        assertEquals(20f, segments[1].getY(0));
+        assertEquals(30f, segments[1].getY(1));
+        // points without an old position rise from zero
+        assertEquals(35f, segments[1].getY(3));
+    }
+
+    @Test
+    public void test_morphSegments_ends() {
+        MorphSparkAnimator.morphSegments(segments, xPoints, yPoints, oldYPoints, 0f);
+        assertEquals(10f, segments[1].getY(1));
+
+        MorphSparkAnimator.morphSegments(segments, xPoints, yPoints, oldYPoints, 1f);
+        assertEquals(50f, segments[1].getY(1));
+        assertEquals(4, segments[1].getPointCount());
+    }
+
+    @Test
+    public void test_morphSegments_doesNotAllocate() {
+        assertDoesNotAllocate(new Runnable() {
+            float fraction;
+
+            @Override
+            public void run() {
+                fraction = (fraction + 0.01f) % 1f;
+                MorphSparkAnimator.morphSegments(segments, xPoints, yPoints, oldYPoints, fraction);
+            }
+        });
+    }
+}